@@ -0,0 +1,126 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * A small JMH-style measurement loop: a timed warmup, then several timed
+ * iterations, reporting throughput and the bytes allocated per operation by
+ * the measuring thread.
+ * 
+ * Every call's result is folded into a volatile sink so the JIT cannot drop
+ * the work as dead code.
+ * 
+ * @author Eric
+ *
+ */
+public class Benchmark {
+
+    /**
+     * A unit of benchmarked work
+     * 
+     * @author Eric
+     *
+     */
+    public interface Operation {
+
+        /**
+         * Runs the work once
+         * 
+         * @return any value derived from the work
+         */
+        Object run();
+    }
+
+    private static final long WARMUP_NANOS = 1000000000L;
+    private static final long ITERATION_NANOS = 1000000000L;
+    private static final int ITERATIONS = 5;
+
+    private static volatile int sink;
+
+    /**
+     * Prints the header for the lines written by {@link #measure}
+     */
+    public static void printHeader() {
+
+        StdOut.printf("%-36s %10s %16s %12s %14s%n", "benchmark", "param", "ops/s", "error (%)", "bytes/op");
+    }
+
+    /**
+     * Measures an operation and prints one line of results
+     * 
+     * @param name
+     * @param param
+     *            value of the size parameter
+     * @param opsPerCall
+     *            number of operations a single call of the operation counts as
+     * @param operation
+     */
+    public static void measure(String name, int param, long opsPerCall, Operation operation) {
+
+        runFor(WARMUP_NANOS, operation);
+
+        double[] throughput = new double[ITERATIONS];
+        long allocated = 0;
+        long ops = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            long calls = runFor(ITERATION_NANOS, operation);
+            long elapsed = System.nanoTime() - start;
+            allocated += allocatedBytes() - bytesBefore;
+            ops += calls * opsPerCall;
+            throughput[i] = calls * opsPerCall * 1e9 / elapsed;
+        }
+
+        double mean = 0;
+        for (double t : throughput) {
+            mean += t / ITERATIONS;
+        }
+        double spread = 0;
+        for (double t : throughput) {
+            spread = Math.max(spread, Math.abs(t - mean));
+        }
+
+        boolean tracksAllocation = allocatedBytes() >= 0;
+        StdOut.printf("%-36s %10d %16.1f %12.1f %14.1f%n", name, param, mean, 100 * spread / mean,
+                tracksAllocation ? (double) allocated / ops : Double.NaN);
+    }
+
+    /**
+     * Calls an operation repeatedly for at least the given time
+     * 
+     * @param nanos
+     * @param operation
+     * 
+     * @return number of calls
+     */
+    private static long runFor(long nanos, Operation operation) {
+
+        long end = System.nanoTime() + nanos;
+        long calls = 0;
+        int hash = 0;
+        do {
+            Object result = operation.run();
+            hash ^= result == null ? 0 : System.identityHashCode(result);
+            calls++;
+        } while (System.nanoTime() < end);
+        sink ^= hash;
+        return calls;
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or a negative value if the
+     * JVM cannot tell
+     */
+    private static long allocatedBytes() {
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
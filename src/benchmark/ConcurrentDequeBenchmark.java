@@ -0,0 +1,232 @@
+package benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.princeton.cs.algs4.StdOut;
+import week2.Deque;
+import week2.WorkStealingDeque;
+
+/**
+ * Multi-threaded stress test and throughput benchmark for
+ * {@link WorkStealingDeque}. One owner thread adds items at the end and takes
+ * some back, while the other threads take items from the front.
+ * 
+ * The stress test checks that every item added is taken exactly once. The
+ * benchmark runs the same workload against a {@link Deque} guarded by
+ * synchronized blocks and reports the items taken per second.
+ * 
+ * Execution: java benchmark.ConcurrentDequeBenchmark [max threads]
+ * 
+ * @author Eric
+ *
+ */
+public class ConcurrentDequeBenchmark {
+
+    private static final int STRESS_ITEMS = 2000000;
+    private static final long RUN_NANOS = 1000000000L;
+
+    /**
+     * The three operations the workload needs, so both deques run the same
+     * loops
+     * 
+     * @author Eric
+     *
+     */
+    private interface Ends {
+
+        void push(Integer item);
+
+        Integer pop();
+
+        Integer steal();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            stress(threads);
+        }
+
+        StdOut.printf("%-36s %10s %16s%n", "benchmark", "threads", "items/s");
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            StdOut.printf("%-36s %10d %16.1f%n", "WorkStealingDeque", threads, throughput(lockFree(), threads));
+            StdOut.printf("%-36s %10d %16.1f%n", "synchronized Deque", threads, throughput(locked(), threads));
+        }
+    }
+
+    /**
+     * Has one owner and threads - 1 thieves share every item in 0 to
+     * STRESS_ITEMS - 1, and fails unless each is taken exactly once
+     * 
+     * @param threads
+     */
+    private static void stress(int threads) throws InterruptedException {
+
+        final WorkStealingDeque<Integer> deque = new WorkStealingDeque<Integer>();
+        final AtomicIntegerArray taken = new AtomicIntegerArray(STRESS_ITEMS);
+        final AtomicBoolean ownerDone = new AtomicBoolean();
+        final CountDownLatch finished = new CountDownLatch(threads - 1);
+
+        for (int i = 1; i < threads; i++) {
+            Thread thief = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    while (true) {
+                        boolean last = ownerDone.get();
+                        Integer item = deque.pollFirst();
+                        if (item != null) {
+                            taken.incrementAndGet(item);
+                        } else if (last) {
+                            break;
+                        }
+                    }
+                    finished.countDown();
+                }
+            });
+            thief.setDaemon(true);
+            thief.start();
+        }
+
+        // Bursts of adds with a few takes from the end, then a final drain
+        for (int item = 0; item < STRESS_ITEMS; item++) {
+            deque.addLast(item);
+            if ((item & 7) == 0) {
+                Integer popped = deque.pollLast();
+                if (popped != null) {
+                    taken.incrementAndGet(popped);
+                }
+            }
+        }
+        Integer popped;
+        while ((popped = deque.pollLast()) != null) {
+            taken.incrementAndGet(popped);
+        }
+        ownerDone.set(true);
+        finished.await();
+
+        for (int item = 0; item < STRESS_ITEMS; item++) {
+            if (taken.get(item) != 1) {
+                throw new IllegalStateException("item " + item + " taken " + taken.get(item) + " times with "
+                        + threads + " threads");
+            }
+        }
+        StdOut.println("stress " + threads + " threads: " + STRESS_ITEMS + " items taken exactly once");
+    }
+
+    /**
+     * Runs the owner and thieves for RUN_NANOS and counts the items taken
+     * 
+     * @param ends
+     * @param threads
+     * 
+     * @return items taken per second
+     */
+    private static double throughput(final Ends ends, int threads) throws InterruptedException {
+
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicLong count = new AtomicLong();
+        final CountDownLatch finished = new CountDownLatch(threads - 1);
+
+        for (int i = 1; i < threads; i++) {
+            Thread thief = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    long stolen = 0;
+                    while (!stop.get()) {
+                        if (ends.steal() != null) {
+                            stolen++;
+                        }
+                    }
+                    count.addAndGet(stolen);
+                    finished.countDown();
+                }
+            });
+            thief.setDaemon(true);
+            thief.start();
+        }
+
+        long start = System.nanoTime();
+        long end = start + RUN_NANOS;
+        long popped = 0;
+        Integer item = 0;
+        do {
+            // Adds a batch, then takes back whatever the thieves left
+            for (int i = 0; i < 64; i++) {
+                ends.push(item);
+            }
+            while (ends.pop() != null) {
+                popped++;
+            }
+        } while (System.nanoTime() < end);
+        stop.set(true);
+        finished.await();
+        long elapsed = System.nanoTime() - start;
+
+        return (count.get() + popped) * 1e9 / elapsed;
+    }
+
+    private static Ends lockFree() {
+
+        final WorkStealingDeque<Integer> deque = new WorkStealingDeque<Integer>();
+        return new Ends() {
+
+            @Override
+            public void push(Integer item) {
+
+                deque.addLast(item);
+            }
+
+            @Override
+            public Integer pop() {
+
+                return deque.pollLast();
+            }
+
+            @Override
+            public Integer steal() {
+
+                return deque.pollFirst();
+            }
+        };
+    }
+
+    private static Ends locked() {
+
+        final Deque<Integer> deque = new Deque<Integer>();
+        return new Ends() {
+
+            @Override
+            public void push(Integer item) {
+
+                synchronized (deque) {
+                    deque.addLast(item);
+                }
+            }
+
+            @Override
+            public Integer pop() {
+
+                synchronized (deque) {
+                    return deque.isEmpty() ? null : deque.removeLast();
+                }
+            }
+
+            @Override
+            public Integer steal() {
+
+                synchronized (deque) {
+                    return deque.isEmpty() ? null : deque.removeFirst();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,244 @@
+package benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.princeton.cs.algs4.StdOut;
+import week2.ConcurrentRandomizedQueue;
+import week2.RandomizedQueue;
+
+/**
+ * Multi-threaded stress test, sampling check and throughput benchmark for
+ * {@link ConcurrentRandomizedQueue}.
+ * 
+ * The stress test has every thread enqueue its own items while dequeueing, and
+ * checks that every item comes out exactly once. The sampling check fills the
+ * stripes unevenly and reports how far the sample counts stray from uniform.
+ * The benchmark runs enqueue and dequeue pairs on every thread against a
+ * {@link RandomizedQueue} guarded by synchronized blocks.
+ * 
+ * Execution: java benchmark.ConcurrentRandomizedQueueBenchmark [max threads]
+ * 
+ * @author Eric
+ *
+ */
+public class ConcurrentRandomizedQueueBenchmark {
+
+    private static final int STRESS_ITEMS_PER_THREAD = 500000;
+    private static final int SAMPLE_ITEMS = 64;
+    private static final int SAMPLES_PER_ITEM = 10000;
+    private static final int PREFILL = 1024;
+    private static final long RUN_NANOS = 1000000000L;
+
+    /**
+     * The two operations the workload needs, so both queues run the same loop
+     * 
+     * @author Eric
+     *
+     */
+    private interface Pool {
+
+        void enqueue(Integer item);
+
+        Integer poll();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            stress(threads);
+        }
+        sampling();
+
+        StdOut.printf("%-36s %10s %16s%n", "benchmark", "threads", "ops/s");
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            StdOut.printf("%-36s %10d %16.1f%n", "ConcurrentRandomizedQueue", threads,
+                    throughput(striped(threads), threads));
+            StdOut.printf("%-36s %10d %16.1f%n", "synchronized RandomizedQueue", threads,
+                    throughput(locked(), threads));
+        }
+    }
+
+    /**
+     * Fails unless every item enqueued by the threads is dequeued exactly once
+     * 
+     * @param threads
+     */
+    private static void stress(final int threads) throws InterruptedException {
+
+        final ConcurrentRandomizedQueue<Integer> queue = new ConcurrentRandomizedQueue<Integer>(threads);
+        final AtomicIntegerArray taken = new AtomicIntegerArray(threads * STRESS_ITEMS_PER_THREAD);
+        final CountDownLatch finished = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            final int first = t * STRESS_ITEMS_PER_THREAD;
+            Thread worker = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    for (int i = 0; i < STRESS_ITEMS_PER_THREAD; i++) {
+                        queue.enqueue(first + i);
+                        if ((i & 1) == 0) {
+                            Integer item = queue.poll();
+                            if (item != null) {
+                                taken.incrementAndGet(item);
+                            }
+                        }
+                    }
+                    finished.countDown();
+                }
+            });
+            worker.setDaemon(true);
+            worker.start();
+        }
+        finished.await();
+
+        Integer item;
+        while ((item = queue.poll()) != null) {
+            taken.incrementAndGet(item);
+        }
+        for (int i = 0; i < taken.length(); i++) {
+            if (taken.get(i) != 1) {
+                throw new IllegalStateException("item " + i + " dequeued " + taken.get(i) + " times with "
+                        + threads + " threads");
+            }
+        }
+        StdOut.println("stress " + threads + " threads: " + taken.length() + " items dequeued exactly once");
+    }
+
+    /**
+     * Puts three quarters of the items on one stripe and the rest on others,
+     * then reports the spread of sample counts around the uniform count
+     */
+    private static void sampling() throws InterruptedException {
+
+        final ConcurrentRandomizedQueue<Integer> queue = new ConcurrentRandomizedQueue<Integer>(4);
+        final int split = SAMPLE_ITEMS * 3 / 4;
+        for (int i = 0; i < split; i++) {
+            queue.enqueue(i);
+        }
+        Thread other = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                for (int i = split; i < SAMPLE_ITEMS; i++) {
+                    queue.enqueue(i);
+                }
+            }
+        });
+        other.start();
+        other.join();
+
+        int[] counts = new int[SAMPLE_ITEMS];
+        for (int i = 0; i < SAMPLE_ITEMS * SAMPLES_PER_ITEM; i++) {
+            counts[queue.sample()]++;
+        }
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (int count : counts) {
+            min = Math.min(min, count);
+            max = Math.max(max, count);
+        }
+        StdOut.printf("sampling: counts between %.3f and %.3f of uniform%n", (double) min / SAMPLES_PER_ITEM,
+                (double) max / SAMPLES_PER_ITEM);
+    }
+
+    /**
+     * Runs enqueue and dequeue pairs on every thread for RUN_NANOS
+     * 
+     * @param pool
+     * @param threads
+     * 
+     * @return operations per second over all threads
+     */
+    private static double throughput(final Pool pool, int threads) throws InterruptedException {
+
+        for (int i = 0; i < PREFILL; i++) {
+            pool.enqueue(i);
+        }
+
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicLong count = new AtomicLong();
+        final CountDownLatch finished = new CountDownLatch(threads);
+
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    long ops = 0;
+                    Integer item = 0;
+                    while (!stop.get()) {
+                        for (int i = 0; i < 64; i++) {
+                            pool.enqueue(item);
+                            item = pool.poll();
+                        }
+                        ops += 128;
+                    }
+                    count.addAndGet(ops);
+                    finished.countDown();
+                }
+            });
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        Thread.sleep(RUN_NANOS / 1000000);
+        stop.set(true);
+        finished.await();
+        long elapsed = System.nanoTime() - start;
+
+        return count.get() * 1e9 / elapsed;
+    }
+
+    private static Pool striped(int threads) {
+
+        final ConcurrentRandomizedQueue<Integer> queue = new ConcurrentRandomizedQueue<Integer>(
+                Math.max(threads, Runtime.getRuntime().availableProcessors()));
+        return new Pool() {
+
+            @Override
+            public void enqueue(Integer item) {
+
+                queue.enqueue(item);
+            }
+
+            @Override
+            public Integer poll() {
+
+                return queue.poll();
+            }
+        };
+    }
+
+    private static Pool locked() {
+
+        final RandomizedQueue<Integer> queue = new RandomizedQueue<Integer>();
+        return new Pool() {
+
+            @Override
+            public void enqueue(Integer item) {
+
+                synchronized (queue) {
+                    queue.enqueue(item);
+                }
+            }
+
+            @Override
+            public Integer poll() {
+
+                synchronized (queue) {
+                    return queue.isEmpty() ? null : queue.dequeue();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,496 @@
+package benchmark;
+
+import java.util.Iterator;
+
+import benchmark.Benchmark.Operation;
+import edu.princeton.cs.algs4.StdRandom;
+import week1.Percolation;
+import week1.PercolationStats;
+import week1.TrialMode;
+import week2.Deque;
+import week2.IntDeque;
+import week2.IntRandomizedQueue;
+import week2.LinkedDeque;
+import week2.RandomizedQueue;
+import week3.BruteCollinearPoints;
+import week3.FastCollinearPoints;
+import week3.Point;
+import week4.Board;
+import week4.Solver;
+
+/**
+ * Throughput and allocation benchmarks for the hot paths of every week, each
+ * run over a few problem sizes.
+ * 
+ * Execution: java benchmark.HotPathBenchmarks [name filter]
+ * 
+ * Only benchmarks whose name contains the filter are run. Run with a large
+ * enough heap for the biggest percolation grids, e.g. -Xmx2g.
+ * 
+ * @author Eric
+ *
+ */
+public class HotPathBenchmarks {
+
+    private static final long SEED = 42;
+
+    private static String filter = "";
+
+    public static void main(String[] args) {
+
+        if (args.length > 0) {
+            filter = args[0];
+        }
+        StdRandom.setSeed(SEED);
+
+        Benchmark.printHeader();
+        percolation();
+        percolationStats();
+        deque();
+        linkedDeque();
+        randomizedQueue();
+        primitiveQueues();
+        collinearPoints();
+        board();
+        solver();
+    }
+
+    private static void percolation() {
+
+        for (final int n : new int[] { 100, 1000 }) {
+            final Percolation p = new Percolation(n);
+            final int[] rows = new int[n * n];
+            final int[] cols = new int[n * n];
+            int[] order = shuffled(n * n);
+            for (int i = 0; i < order.length; i++) {
+                rows[i] = order[i] / n + 1;
+                cols[i] = order[i] % n + 1;
+            }
+
+            run("Percolation.open", n, (long) n * n, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    p.reset();
+                    for (int i = 0; i < rows.length; i++) {
+                        p.open(rows[i], cols[i]);
+                    }
+                    return p.percolates();
+                }
+            });
+
+            // Query a grid opened up to the threshold, where isFull is least
+            // predictable
+            p.reset();
+            for (int i = 0; !p.percolates(); i++) {
+                p.open(rows[i], cols[i]);
+            }
+            run("Percolation.isFull", n, (long) n * n, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    int full = 0;
+                    for (int row = 1; row <= n; row++) {
+                        for (int col = 1; col <= n; col++) {
+                            if (p.isFull(row, col)) {
+                                full++;
+                            }
+                        }
+                    }
+                    return full;
+                }
+            });
+        }
+    }
+
+    private static void percolationStats() {
+
+        final int trials = 16;
+        for (final TrialMode mode : TrialMode.values()) {
+            for (final int n : new int[] { 50, 200 }) {
+                run("PercolationStats." + mode, n, trials, new Operation() {
+
+                    @Override
+                    public Object run() {
+
+                        return new PercolationStats(n, trials, SEED, 1, mode).mean();
+                    }
+                });
+            }
+        }
+    }
+
+    private static void deque() {
+
+        for (final int size : new int[] { 1000, 100000 }) {
+            run("Deque.addLast+removeFirst", size, 2L * size, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    Deque<Integer> deque = new Deque<Integer>();
+                    for (int i = 0; i < size; i++) {
+                        deque.addLast(i);
+                    }
+                    int sum = 0;
+                    while (!deque.isEmpty()) {
+                        sum += deque.removeFirst();
+                    }
+                    return sum;
+                }
+            });
+
+            run("Deque.addFirst+removeLast", size, 2L * size, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    Deque<Integer> deque = new Deque<Integer>();
+                    for (int i = 0; i < size; i++) {
+                        deque.addFirst(i);
+                    }
+                    int sum = 0;
+                    while (!deque.isEmpty()) {
+                        sum += deque.removeLast();
+                    }
+                    return sum;
+                }
+            });
+
+            // A work queue holding size items: every op takes the first item
+            // and puts it back at the end
+            final Deque<Integer> queue = new Deque<Integer>();
+            for (int i = 0; i < size; i++) {
+                queue.addLast(i);
+            }
+            run("Deque.workQueue", size, 2L * size, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    for (int i = 0; i < size; i++) {
+                        queue.addLast(queue.removeFirst());
+                    }
+                    return queue.size();
+                }
+            });
+        }
+    }
+
+    private static void linkedDeque() {
+
+        for (final int size : new int[] { 1000, 100000 }) {
+            run("LinkedDeque.addLast+removeFirst", size, 2L * size, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    LinkedDeque<Integer> deque = new LinkedDeque<Integer>();
+                    for (int i = 0; i < size; i++) {
+                        deque.addLast(i);
+                    }
+                    int sum = 0;
+                    while (!deque.isEmpty()) {
+                        sum += deque.removeFirst();
+                    }
+                    return sum;
+                }
+            });
+
+            run("LinkedDeque.addFirst+removeLast", size, 2L * size, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    LinkedDeque<Integer> deque = new LinkedDeque<Integer>();
+                    for (int i = 0; i < size; i++) {
+                        deque.addFirst(i);
+                    }
+                    int sum = 0;
+                    while (!deque.isEmpty()) {
+                        sum += deque.removeLast();
+                    }
+                    return sum;
+                }
+            });
+
+            final LinkedDeque<Integer> queue = new LinkedDeque<Integer>();
+            for (int i = 0; i < size; i++) {
+                queue.addLast(i);
+            }
+            run("LinkedDeque.workQueue", size, 2L * size, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    for (int i = 0; i < size; i++) {
+                        queue.addLast(queue.removeFirst());
+                    }
+                    return queue.size();
+                }
+            });
+        }
+    }
+
+    private static void primitiveQueues() {
+
+        for (final int size : new int[] { 1000, 100000 }) {
+            final IntDeque deque = new IntDeque();
+            for (int i = 0; i < size; i++) {
+                deque.addLast(i);
+            }
+            run("IntDeque.workQueue", size, 2L * size, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    for (int i = 0; i < size; i++) {
+                        deque.addLast(deque.removeFirst());
+                    }
+                    return deque.size();
+                }
+            });
+
+            run("IntRandomizedQueue.enqueue+dequeue", size, 2L * size, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    IntRandomizedQueue queue = new IntRandomizedQueue();
+                    for (int i = 0; i < size; i++) {
+                        queue.enqueue(i);
+                    }
+                    int sum = 0;
+                    while (!queue.isEmpty()) {
+                        sum += queue.dequeue();
+                    }
+                    return sum;
+                }
+            });
+        }
+    }
+
+    private static void randomizedQueue() {
+
+        for (final int size : new int[] { 1000, 100000 }) {
+            run("RandomizedQueue.enqueue+dequeue", size, 2L * size, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    RandomizedQueue<Integer> queue = new RandomizedQueue<Integer>();
+                    for (int i = 0; i < size; i++) {
+                        queue.enqueue(i);
+                    }
+                    int sum = 0;
+                    while (!queue.isEmpty()) {
+                        sum += queue.dequeue();
+                    }
+                    return sum;
+                }
+            });
+
+            final Integer[] items = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                items[i] = i;
+            }
+            final Integer[] batch = new Integer[64];
+            run("RandomizedQueue.enqueueAll+dequeue 64", size, 2L * size, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    RandomizedQueue<Integer> queue = new RandomizedQueue<Integer>();
+                    queue.enqueueAll(items);
+                    int sum = 0;
+                    while (!queue.isEmpty()) {
+                        queue.dequeue(Math.min(batch.length, queue.size()), batch);
+                        sum += batch[0];
+                    }
+                    return sum;
+                }
+            });
+
+            final RandomizedQueue<Integer> queue = new RandomizedQueue<Integer>();
+            for (int i = 0; i < size; i++) {
+                queue.enqueue(i);
+            }
+            run("RandomizedQueue.iterator", size, size, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    int sum = 0;
+                    for (Iterator<Integer> it = queue.iterator(); it.hasNext();) {
+                        sum += it.next();
+                    }
+                    return sum;
+                }
+            });
+
+            // Only the first few items of a fresh order, as a sampler would
+            run("RandomizedQueue.iterator first 16", size, 16, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    int sum = 0;
+                    Iterator<Integer> it = queue.iterator();
+                    for (int i = 0; i < 16; i++) {
+                        sum += it.next();
+                    }
+                    return sum;
+                }
+            });
+        }
+    }
+
+    private static void collinearPoints() {
+
+        for (final int size : new int[] { 20, 80 }) {
+            final Point[] points = points(size);
+            run("BruteCollinearPoints", size, 1, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    return new BruteCollinearPoints(points).numberOfSegments();
+                }
+            });
+        }
+
+        for (final int size : new int[] { 100, 1000 }) {
+            final Point[] points = points(size);
+            run("FastCollinearPoints", size, 1, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    return new FastCollinearPoints(points).numberOfSegments();
+                }
+            });
+        }
+    }
+
+    private static void board() {
+
+        for (final int n : new int[] { 3, 10, 50 }) {
+            final Board board = new Board(scramble(n, 10 * n * n));
+            run("Board.neighbors", n, 1, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    int count = 0;
+                    for (Board neighbor : board.neighbors()) {
+                        count += neighbor.manhattan();
+                    }
+                    return count;
+                }
+            });
+        }
+    }
+
+    private static void solver() {
+
+        // Random walks from the goal: always solvable, and the walk length
+        // bounds how hard the puzzle is
+        for (final int moves : new int[] { 20, 40 }) {
+            final Board board = new Board(scramble(4, moves));
+            run("Solver 4x4", moves, 1, new Operation() {
+
+                @Override
+                public Object run() {
+
+                    return new Solver(board).moves();
+                }
+            });
+        }
+    }
+
+    private static void run(String name, int param, long opsPerCall, Operation operation) {
+
+        if (name.contains(filter)) {
+            Benchmark.measure(name, param, opsPerCall, operation);
+        }
+    }
+
+    /**
+     * Random permutation of 0 to size - 1
+     * 
+     * @param size
+     */
+    private static int[] shuffled(int size) {
+
+        int[] a = new int[size];
+        for (int i = 0; i < size; i++) {
+            a[i] = i;
+        }
+        StdRandom.shuffle(a);
+        return a;
+    }
+
+    /**
+     * Random points with a few 4 and 5 point lines mixed in, so both collinear
+     * finders have segments to report
+     * 
+     * @param size
+     */
+    private static Point[] points(int size) {
+
+        Point[] points = new Point[size];
+        int i = 0;
+        while (i + 5 <= size / 2) {
+            int x = StdRandom.uniform(1000);
+            int y = StdRandom.uniform(1000);
+            int dx = StdRandom.uniform(1, 50);
+            int dy = StdRandom.uniform(-50, 50);
+            for (int k = 0; k < 5; k++) {
+                points[i++] = new Point(x + k * dx, y + k * dy + 10000);
+            }
+        }
+        // Keep every point distinct, as both finders require
+        for (int k = 0; i < size; k++) {
+            points[i++] = new Point(20000 + k, StdRandom.uniform(32768));
+        }
+        return points;
+    }
+
+    /**
+     * An n-by-n puzzle reached by sliding the blank randomly from the goal
+     * 
+     * @param n
+     * @param moves
+     */
+    private static int[][] scramble(int n, int moves) {
+
+        int[][] blocks = new int[n][n];
+        for (int i = 0; i < n * n; i++) {
+            blocks[i / n][i % n] = (i + 1) % (n * n);
+        }
+
+        int[] dRow = { -1, 1, 0, 0 };
+        int[] dCol = { 0, 0, -1, 1 };
+        int row = n - 1;
+        int col = n - 1;
+        int last = -1;
+        for (int m = 0; m < moves; m++) {
+            int dir = StdRandom.uniform(4);
+            int r = row + dRow[dir];
+            int c = col + dCol[dir];
+            // Skip moves off the board and moves that undo the previous one
+            if (r < 0 || r >= n || c < 0 || c >= n || (dir ^ 1) == last) {
+                m--;
+                continue;
+            }
+            blocks[row][col] = blocks[r][c];
+            blocks[r][c] = 0;
+            row = r;
+            col = c;
+            last = dir;
+        }
+        return blocks;
+    }
+}
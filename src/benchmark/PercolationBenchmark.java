@@ -0,0 +1,178 @@
+package benchmark;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+import edu.princeton.cs.algs4.Stopwatch;
+import edu.princeton.cs.algs4.WeightedQuickUnionUF;
+import week1.Percolation;
+import week1.PercolationStats;
+import week1.TrialMode;
+
+/**
+ * Times a full percolation run, opening sites in a random order until the
+ * system percolates (grid allocation is not timed), on grids of increasing
+ * size. Compares {@link Percolation} with a reference engine built on the
+ * algs4 {@link WeightedQuickUnionUF}, then compares the trial engines of
+ * {@link PercolationStats} on one thread.
+ * 
+ * Execution: java -Xmx4g benchmark.PercolationBenchmark [n ...]
+ * 
+ * The default sizes go up to a 10000x10000 grid, which needs about 4 GB of
+ * heap; pass smaller sizes to run with the default heap.
+ * 
+ * @author Eric
+ *
+ */
+public class PercolationBenchmark {
+
+    private static final long SEED = 42;
+    private static final int RUNS = 3;
+    private static final int TRIALS = 5;
+
+    public static void main(String[] args) {
+
+        int[] sizes = { 1000, 2000, 4000, 10000 };
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        StdOut.printf("%8s %14s %14s %8s%n", "n", "reference (s)", "inline (s)", "speedup");
+        for (int n : sizes) {
+            int[] order = shuffledSites(n);
+
+            double reference = Double.MAX_VALUE;
+            double inline = Double.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                reference = Math.min(reference, timeReference(n, order));
+                inline = Math.min(inline, timeInline(n, order));
+            }
+            StdOut.printf("%8d %14.3f %14.3f %7.2fx%n", n, reference, inline, reference / inline);
+        }
+
+        StdOut.println();
+        StdOut.printf("%8s %18s %18s%n", "n", "incremental (s/t)", "flood fill (s/t)");
+        for (int n : sizes) {
+            double incremental = timeTrials(n, TrialMode.SHUFFLED);
+            double floodFill = timeTrials(n, TrialMode.FLOOD_FILL);
+            StdOut.printf("%8d %18.3f %18.3f%n", n, incremental, floodFill);
+        }
+    }
+
+    private static double timeTrials(int n, TrialMode mode) {
+
+        // Warm up on a small grid so the timed run is compiled
+        new PercolationStats(Math.min(n, 100), TRIALS, SEED, 1, mode);
+
+        Stopwatch stopwatch = new Stopwatch();
+        new PercolationStats(n, TRIALS, SEED, 1, mode);
+        return stopwatch.elapsedTime() / TRIALS;
+    }
+
+    private static double timeInline(int n, int[] order) {
+
+        Percolation p = new Percolation(n);
+        Stopwatch stopwatch = new Stopwatch();
+        for (int i = 0; !p.percolates(); i++) {
+            int site = order[i] - 1;
+            p.open(site / n + 1, site % n + 1);
+        }
+        return stopwatch.elapsedTime();
+    }
+
+    private static double timeReference(int n, int[] order) {
+
+        ReferencePercolation p = new ReferencePercolation(n);
+        Stopwatch stopwatch = new Stopwatch();
+        for (int i = 0; !p.percolates(); i++) {
+            p.openSite(order[i]);
+        }
+        return stopwatch.elapsedTime();
+    }
+
+    private static int[] shuffledSites(int n) {
+
+        int[] sites = new int[n * n];
+        for (int i = 0; i < sites.length; i++) {
+            sites[i] = i + 1;
+        }
+        StdRandom.setSeed(SEED);
+        StdRandom.shuffle(sites);
+        return sites;
+    }
+
+    /**
+     * The engine {@link Percolation} used before it got its own union-find: a
+     * find on every open neighbor followed by a separate union.
+     * 
+     * @author Eric
+     *
+     */
+    private static class ReferencePercolation {
+
+        private static final byte OPEN = 1;
+        private static final byte CONNECTED_TOP = 2;
+        private static final byte CONNECTED_BOTTOM = 4;
+        private static final byte CONNECTED_BOTH = CONNECTED_TOP | CONNECTED_BOTTOM;
+
+        private final WeightedQuickUnionUF uf;
+        private final byte[] status;
+        private final int n;
+        private boolean percolates;
+
+        public ReferencePercolation(int n) {
+
+            this.n = n;
+            status = new byte[n * n + 1];
+            uf = new WeightedQuickUnionUF(n * n + 1);
+        }
+
+        public void openSite(int site) {
+
+            int row = (site - 1) / n + 1;
+            int col = site - (row - 1) * n;
+            byte state = OPEN;
+            if (row == 1) {
+                state |= CONNECTED_TOP;
+            }
+            if (row == n) {
+                state |= CONNECTED_BOTTOM;
+            }
+            if (row > 1) {
+                state |= connect(site, site - n);
+            }
+            if (row < n) {
+                state |= connect(site, site + n);
+            }
+            if (col > 1) {
+                state |= connect(site, site - 1);
+            }
+            if (col < n) {
+                state |= connect(site, site + 1);
+            }
+
+            status[site] = OPEN;
+            status[uf.find(site)] = state;
+            if ((state & CONNECTED_BOTH) == CONNECTED_BOTH) {
+                percolates = true;
+            }
+        }
+
+        public boolean percolates() {
+
+            return percolates;
+        }
+
+        private byte connect(int site, int neighbor) {
+
+            if (status[neighbor] == 0) {
+                return 0;
+            }
+            byte state = status[uf.find(neighbor)];
+            uf.union(site, neighbor);
+            return state;
+        }
+    }
+}
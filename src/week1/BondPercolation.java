@@ -0,0 +1,183 @@
+package week1;
+
+import java.util.Arrays;
+
+/**
+ * Bond percolation on an n-by-n grid. Every site is present, and it is the
+ * bonds between neighboring sites that open. A site is full if open bonds join
+ * it to a site in the top row, and the system percolates when a site in the
+ * bottom row is full.
+ * 
+ * Bonds are numbered from 0. The n * (n - 1) horizontal bonds come first, bond
+ * row * (n - 1) + col joining (row, col) and (row, col + 1), counted from 0;
+ * then the vertical bonds, bond n * (n - 1) + row * n + col joining (row, col)
+ * and (row + 1, col). Open bonds are kept in a bitset, and sites are joined
+ * by the same union-find with top/bottom flags as {@link Percolation}.
+ * 
+ * @author Eric
+ *
+ */
+public class BondPercolation {
+
+    private final int n;
+    private final int size;
+    private final int horizontalBonds;
+    private final int bonds;
+
+    private final long[] open;
+    private final FlaggedUnionFind components;
+    private int numOfOpenBonds;
+    private boolean percolates;
+
+    /**
+     * Creates an n*n grid with every bond closed
+     * 
+     * @param n
+     */
+    public BondPercolation(int n) {
+
+        if (n <= 0 || n > 32768) {
+            throw new IllegalArgumentException("N must be > 0 and <= 32768");
+        }
+
+        this.n = n;
+        size = n * n;
+        horizontalBonds = n * (n - 1);
+        bonds = 2 * horizontalBonds;
+        open = new long[(bonds >> 6) + 1];
+        components = new FlaggedUnionFind(size);
+        reset();
+    }
+
+    /**
+     * Closes every bond again so the grid can be reused for another run
+     */
+    public void reset() {
+
+        Arrays.fill(open, 0L);
+
+        // Every site is open; only the bonds between them are not
+        components.reset();
+        for (int site = 0; site < size; site++) {
+            byte flags = 0;
+            if (site < n) {
+                flags |= FlaggedUnionFind.CONNECTED_TOP;
+            }
+            if (site >= size - n) {
+                flags |= FlaggedUnionFind.CONNECTED_BOTTOM;
+            }
+            components.open(site, flags);
+        }
+        numOfOpenBonds = 0;
+        percolates = n == 1;
+    }
+
+    /**
+     * Number of bonds in the grid
+     */
+    public int numberOfBonds() {
+
+        return bonds;
+    }
+
+    /**
+     * Opens a bond if it is not open already
+     * 
+     * @param bond
+     */
+    public void openBond(int bond) {
+
+        validateBond(bond);
+
+        openBondUnchecked(bond);
+    }
+
+    /**
+     * Opens a bond without bounds checks
+     * 
+     * @param bond
+     */
+    void openBondUnchecked(int bond) {
+
+        long mask = 1L << bond;
+        if ((open[bond >>> 6] & mask) != 0) {
+            return;
+        }
+        open[bond >>> 6] |= mask;
+        numOfOpenBonds++;
+
+        int p;
+        int q;
+        if (bond < horizontalBonds) {
+            int row = bond / (n - 1);
+            p = row * n + (bond - row * (n - 1));
+            q = p + 1;
+        } else {
+            p = bond - horizontalBonds;
+            q = p + n;
+        }
+
+        int root = components.connect(components.find(p), q);
+        if (components.percolates(root)) {
+            percolates = true;
+        }
+    }
+
+    /**
+     * Determines if a bond is open
+     * 
+     * @param bond
+     * 
+     * @return if bond is open
+     */
+    public boolean isBondOpen(int bond) {
+
+        validateBond(bond);
+
+        return (open[bond >>> 6] & (1L << bond)) != 0;
+    }
+
+    /**
+     * Determines if a site is full
+     * 
+     * @param row
+     * @param col
+     * 
+     * @return if site is full
+     */
+    public boolean isFull(int row, int col) {
+
+        if (row > n || col > n || row <= 0 || col <= 0) {
+            throw new IndexOutOfBoundsException("Row or Col out of bounds");
+        }
+
+        return components.isFull((row - 1) * n + col - 1);
+    }
+
+    /**
+     * Gets the number of open bonds
+     * 
+     * @return number of open bonds
+     */
+    public int numberOfOpenBonds() {
+
+        return numOfOpenBonds;
+    }
+
+    /**
+     * Determines if the system percolates
+     * 
+     * @return if system percolates
+     */
+    public boolean percolates() {
+
+        return percolates;
+    }
+
+    private void validateBond(int bond) {
+
+        if (bond < 0 || bond >= bonds) {
+            throw new IndexOutOfBoundsException("Bond out of bounds");
+        }
+    }
+}
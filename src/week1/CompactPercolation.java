@@ -0,0 +1,303 @@
+package week1;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Percolation} with the same open/isOpen/isFull/percolates semantics
+ * that stores about 4 bytes per site instead of 9, for grids too large for the
+ * regular engine.
+ * 
+ * Open sites are kept in a bitset. The union-find uses a single int per site:
+ * a site that is not a root stores its parent, and a root stores the
+ * complement of its rank and its top/bottom flags, which is always negative.
+ * Union is by rank, so the rank never needs more than 5 bits.
+ * 
+ * @author Eric
+ *
+ */
+public class CompactPercolation {
+
+    private static final int CONNECTED_TOP = 1;
+    private static final int CONNECTED_BOTTOM = 2;
+    private static final int CONNECTED_BOTH = CONNECTED_TOP | CONNECTED_BOTTOM;
+    private static final int FLAG_BITS = 2;
+
+    // Largest n for which n*n + 1 sites still fit in an int-indexed array
+    private static final int MAX_N = 46340;
+
+    private final long[] open;
+    private final int[] parent;
+    private final int n;
+    private final int size;
+    private int numOfOpenSites;
+    private boolean percolates;
+
+    /**
+     * Creates an n*n grid
+     * 
+     * @param n
+     */
+    public CompactPercolation(int n) {
+
+        if (n <= 0) {
+            throw new IllegalArgumentException("N must be > 0");
+        }
+        if (n > MAX_N) {
+            throw new IllegalArgumentException("N must be <= " + MAX_N);
+        }
+
+        this.n = n;
+        size = n * n;
+        open = new long[(size >> 6) + 1];
+        parent = new int[size + 1];
+        reset();
+    }
+
+    /**
+     * Blocks every site again so the grid can be reused for another run
+     */
+    public void reset() {
+
+        Arrays.fill(open, 0L);
+        Arrays.fill(parent, ~0);
+        numOfOpenSites = 0;
+        percolates = false;
+    }
+
+    /**
+     * Opens a site if it is not open already
+     * 
+     * @param row
+     * @param col
+     */
+    public void open(int row, int col) {
+
+        validate2DCoords(row, col);
+
+        openUnchecked(twoDimToOneDim(row, col), row, col);
+    }
+
+    /**
+     * Opens a site by its 1D index, from 1 to n*n, without bounds checks
+     * 
+     * @param site
+     */
+    void openSite(int site) {
+
+        int row = (site - 1) / n + 1;
+        openUnchecked(site, row, site - (row - 1) * n);
+    }
+
+    /**
+     * Determines if a site is open
+     * 
+     * @param row
+     * @param col
+     * 
+     * @return if site is open
+     */
+    public boolean isOpen(int row, int col) {
+
+        validate2DCoords(row, col);
+
+        return isOpenSite(twoDimToOneDim(row, col));
+    }
+
+    /**
+     * Determines if a site is full
+     * 
+     * @param row
+     * @param col
+     * 
+     * @return if site is full
+     */
+    public boolean isFull(int row, int col) {
+
+        validate2DCoords(row, col);
+
+        int site = twoDimToOneDim(row, col);
+        if (!isOpenSite(site)) {
+            return false;
+        }
+
+        return (flags(find(site)) & CONNECTED_TOP) != 0;
+    }
+
+    /**
+     * Gets the number of open sites
+     * 
+     * @return number of open sites
+     */
+    public int numberOfOpenSites() {
+
+        return numOfOpenSites;
+    }
+
+    /**
+     * Determines if the system percolates
+     * 
+     * @return if system percolates
+     */
+    public boolean percolates() {
+
+        return percolates;
+    }
+
+    /**
+     * Opens a site if it is not open already and connects it to its open
+     * neighbors
+     * 
+     * @param site
+     * @param row
+     * @param col
+     */
+    private void openUnchecked(int site, int row, int col) {
+
+        if (isOpenSite(site)) {
+            return;
+        }
+
+        open[site >>> 6] |= 1L << site;
+        numOfOpenSites++;
+
+        int state = 0;
+
+        // Connect to virtual top site if row 1
+        if (row == 1) {
+            state |= CONNECTED_TOP;
+        }
+
+        // Connect to virtual bottom site if last row
+        if (row == n) {
+            state |= CONNECTED_BOTTOM;
+        }
+
+        // The new site starts as a rank 0 root and absorbs each open neighbor
+        parent[site] = ~state;
+        int root = site;
+
+        // Connect up
+        if (row > 1) {
+            root = connect(root, site - n);
+        }
+
+        // Connect down
+        if (row < n) {
+            root = connect(root, site + n);
+        }
+
+        // Connect left
+        if (col > 1) {
+            root = connect(root, site - 1);
+        }
+
+        // Connect Right
+        if (col < n) {
+            root = connect(root, site + 1);
+        }
+
+        if ((flags(root) & CONNECTED_BOTH) == CONNECTED_BOTH) {
+            percolates = true;
+        }
+    }
+
+    /**
+     * Merges a neighbor's component into the component rooted at root, if the
+     * neighbor is open
+     * 
+     * @param root
+     * @param neighbor
+     * 
+     * @return root of the merged component
+     */
+    private int connect(int root, int neighbor) {
+
+        if (!isOpenSite(neighbor)) {
+            return root;
+        }
+
+        int neighborRoot = find(neighbor);
+        if (neighborRoot == root) {
+            return root;
+        }
+
+        int rootInfo = ~parent[root];
+        int neighborInfo = ~parent[neighborRoot];
+        int state = (rootInfo | neighborInfo) & CONNECTED_BOTH;
+        int rank = rootInfo >>> FLAG_BITS;
+        int neighborRank = neighborInfo >>> FLAG_BITS;
+
+        if (rank < neighborRank) {
+            parent[root] = neighborRoot;
+            parent[neighborRoot] = ~(neighborRank << FLAG_BITS | state);
+            return neighborRoot;
+        }
+
+        if (rank == neighborRank) {
+            rank++;
+        }
+        parent[neighborRoot] = root;
+        parent[root] = ~(rank << FLAG_BITS | state);
+        return root;
+    }
+
+    /**
+     * Finds the root of an open site's component, pointing every other site on
+     * the path at its grandparent along the way
+     * 
+     * @param site
+     * 
+     * @return root of the component
+     */
+    private int find(int site) {
+
+        while (true) {
+            int p = parent[site];
+            if (p < 0) {
+                return site;
+            }
+            int grandparent = parent[p];
+            if (grandparent < 0) {
+                return p;
+            }
+            parent[site] = grandparent;
+            site = grandparent;
+        }
+    }
+
+    private int flags(int root) {
+
+        return ~parent[root] & CONNECTED_BOTH;
+    }
+
+    private boolean isOpenSite(int site) {
+
+        return (open[site >>> 6] & (1L << site)) != 0;
+    }
+
+    /**
+     * Converts 2D coords into 1D
+     * 
+     * @param row
+     * @param col
+     * 
+     * @return 1D coords
+     */
+    private int twoDimToOneDim(int row, int col) {
+
+        return (row - 1) * n + col;
+    }
+
+    /**
+     * Validates a coordinate
+     * 
+     * @param row
+     * @param col
+     */
+    private void validate2DCoords(int row, int col) {
+
+        if (row > n || col > n || row <= 0 || col <= 0) {
+            throw new IndexOutOfBoundsException("Row or Col out of bounds");
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package week1;
+
+import java.util.Arrays;
+
+/**
+ * The union-find behind {@link Percolation}, {@link LatticePercolation} and
+ * {@link BondPercolation}: union by size with path halving over int arrays,
+ * cleared in place by {@link #reset()}. Every site is closed until it is
+ * opened, and each component carries flags for touching the top and the
+ * bottom, kept up to date at its root only. The methods do no bounds checks;
+ * callers validate their sites first.
+ * 
+ * @author Eric
+ *
+ */
+final class FlaggedUnionFind {
+
+    static final byte CONNECTED_TOP = 2;
+    static final byte CONNECTED_BOTTOM = 4;
+
+    private static final byte CLOSED = 0;
+    private static final byte OPEN = 1;
+    private static final byte CONNECTED_BOTH = CONNECTED_TOP | CONNECTED_BOTTOM;
+
+    private final int[] parent;
+    private final int[] componentSize;
+    private final byte[] status;
+
+    /**
+     * Creates sites 0 to length - 1, all closed
+     * 
+     * @param length
+     */
+    FlaggedUnionFind(int length) {
+
+        parent = new int[length];
+        componentSize = new int[length];
+        status = new byte[length];
+        reset();
+    }
+
+    /**
+     * Closes every site and puts each in its own component again
+     */
+    void reset() {
+
+        Arrays.fill(status, CLOSED);
+        Arrays.fill(componentSize, 1);
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+    }
+
+    /**
+     * Opens a closed site as a component of its own
+     * 
+     * @param site
+     * @param flags
+     *            CONNECTED_TOP and CONNECTED_BOTTOM bits for the site
+     */
+    void open(int site, byte flags) {
+
+        status[site] = (byte) (OPEN | flags);
+    }
+
+    boolean isOpen(int site) {
+
+        return status[site] != CLOSED;
+    }
+
+    /**
+     * Determines if a site is open and joined to the top
+     * 
+     * @param site
+     */
+    boolean isFull(int site) {
+
+        return status[site] != CLOSED && isFullRoot(find(site));
+    }
+
+    /**
+     * Determines if the component of a root is joined to the top
+     * 
+     * @param root
+     */
+    boolean isFullRoot(int root) {
+
+        return (status[root] & CONNECTED_TOP) != 0;
+    }
+
+    /**
+     * Determines if the component of a root is joined to the top and the
+     * bottom
+     * 
+     * @param root
+     */
+    boolean percolates(int root) {
+
+        return (status[root] & CONNECTED_BOTH) == CONNECTED_BOTH;
+    }
+
+    /**
+     * Merges a neighbor's component into the component rooted at root, if the
+     * neighbor is open
+     * 
+     * @param root
+     * @param neighbor
+     * 
+     * @return root of the merged component
+     */
+    int connect(int root, int neighbor) {
+
+        if (status[neighbor] == CLOSED) {
+            return root;
+        }
+
+        int neighborRoot = find(neighbor);
+        if (neighborRoot == root) {
+            return root;
+        }
+        return union(root, neighborRoot);
+    }
+
+    /**
+     * Finds the root of a site's component, pointing every other site on the
+     * path at its grandparent along the way
+     * 
+     * @param site
+     * 
+     * @return root of the component
+     */
+    int find(int site) {
+
+        while (site != parent[site]) {
+            parent[site] = parent[parent[site]];
+            site = parent[site];
+        }
+        return site;
+    }
+
+    /**
+     * Links two distinct roots, putting the smaller tree under the larger one
+     * and combining their flags
+     * 
+     * @param rootP
+     * @param rootQ
+     * 
+     * @return root of the merged component
+     */
+    int union(int rootP, int rootQ) {
+
+        byte state = (byte) (status[rootP] | status[rootQ]);
+        int root;
+        if (componentSize[rootP] < componentSize[rootQ]) {
+            parent[rootP] = rootQ;
+            componentSize[rootQ] += componentSize[rootP];
+            root = rootQ;
+        } else {
+            parent[rootQ] = rootP;
+            componentSize[rootP] += componentSize[rootQ];
+            root = rootP;
+        }
+        status[root] = state;
+        return root;
+    }
+}
@@ -0,0 +1,153 @@
+package week1;
+
+import java.util.Arrays;
+
+/**
+ * Finds the percolation threshold of a random opening order without a
+ * union-find. Every site is given the step at which it opens, then the number
+ * of open sites is binary searched, checking each candidate with a flood fill
+ * from the top row over the sites opened so far.
+ * 
+ * All arrays are allocated once per grid. The flood fill marks visited sites
+ * with a pass number instead of clearing a visited array before each pass.
+ * 
+ * @author Eric
+ *
+ */
+final class FloodFillPercolation {
+
+    private final int n;
+    private final int size;
+
+    // Step, from 0, at which each site opens. Sites are numbered from 0 here.
+    private final int[] openTime;
+    private final int[] queue;
+    private final int[] visited;
+    private int pass;
+
+    FloodFillPercolation(int n) {
+
+        if (n <= 0) {
+            throw new IllegalArgumentException("N must be > 0");
+        }
+
+        this.n = n;
+        size = n * n;
+        openTime = new int[size];
+        queue = new int[size];
+        visited = new int[size];
+    }
+
+    /**
+     * Draws a random opening order and finds how many sites must be open before
+     * the system percolates
+     * 
+     * @param random
+     * 
+     * @return fraction of sites open when the system first percolates
+     */
+    double threshold(TrialRandom random) {
+
+        // Inside-out Fisher-Yates builds a uniformly random permutation in one
+        // pass without initializing the array first
+        for (int i = 0; i < size; i++) {
+            int swap = random.nextInt(i + 1);
+            openTime[i] = openTime[swap];
+            openTime[swap] = i;
+        }
+
+        // Smallest number of open sites that percolates, in (lo, hi]
+        int lo = n - 1;
+        int hi = size;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (percolates(mid)) {
+                hi = mid;
+            } else {
+                lo = mid;
+            }
+        }
+        return ((double) hi) / ((double) size);
+    }
+
+    /**
+     * Gets the opening order drawn by the last call to threshold
+     * 
+     * @param sites
+     *            receives the 1D index, from 1 to n*n, of the site opened at
+     *            each step
+     */
+    void openOrder(int[] sites) {
+
+        for (int site = 0; site < size; site++) {
+            sites[openTime[site]] = site + 1;
+        }
+    }
+
+    /**
+     * Flood fills from the top row over the first openSites sites to open
+     * 
+     * @param openSites
+     * 
+     * @return if an open site in the bottom row is reached
+     */
+    private boolean percolates(int openSites) {
+
+        if (++pass == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            pass = 1;
+        }
+
+        int head = 0;
+        int tail = 0;
+        for (int site = 0; site < n; site++) {
+            if (openTime[site] < openSites) {
+                visited[site] = pass;
+                queue[tail++] = site;
+            }
+        }
+
+        int lastRow = size - n;
+        while (head < tail) {
+            int site = queue[head++];
+            if (site >= lastRow) {
+                return true;
+            }
+
+            int col = site % n;
+            // Up
+            if (site >= n) {
+                tail = visit(site - n, openSites, tail);
+            }
+            // Down
+            tail = visit(site + n, openSites, tail);
+            // Left
+            if (col > 0) {
+                tail = visit(site - 1, openSites, tail);
+            }
+            // Right
+            if (col < n - 1) {
+                tail = visit(site + 1, openSites, tail);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Queues a site if it is open and not visited yet in this pass
+     * 
+     * @param site
+     * @param openSites
+     * @param tail
+     * 
+     * @return new tail of the queue
+     */
+    private int visit(int site, int openSites, int tail) {
+
+        if (visited[site] != pass && openTime[site] < openSites) {
+            visited[site] = pass;
+            queue[tail++] = site;
+        }
+        return tail;
+    }
+}
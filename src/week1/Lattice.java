@@ -0,0 +1,196 @@
+package week1;
+
+/**
+ * The shape of a percolation system: which sites there are, which are
+ * neighbors, and which touch the top and the bottom. Sites are numbered from 0
+ * to size() - 1.
+ * 
+ * The shapes are a closed set of final classes so that
+ * {@link LatticePercolation} can pick a specialized open loop for each one
+ * once, instead of making a virtual call per neighbor.
+ * 
+ * @author Eric
+ *
+ */
+public abstract class Lattice {
+
+    private Lattice() {
+
+    }
+
+    /**
+     * Number of sites
+     */
+    public abstract int size();
+
+    /**
+     * An n-by-n grid with four neighbors per site. Site (row, col), counted
+     * from 0, is row * n + col. The first row touches the top and the last
+     * row the bottom.
+     * 
+     * @param n
+     */
+    public static Lattice square(int n) {
+
+        return new Square(n);
+    }
+
+    /**
+     * An n-by-n-by-n cube with six neighbors per site. Site (layer, row, col),
+     * counted from 0, is (layer * n + row) * n + col. The first layer touches
+     * the top and the last layer the bottom.
+     * 
+     * @param n
+     */
+    public static Lattice cubic(int n) {
+
+        return new Cubic(n);
+    }
+
+    /**
+     * An arbitrary graph in compressed sparse row form: the neighbors of site
+     * s are targets[offsets[s]] to targets[offsets[s + 1] - 1]. Edges should
+     * be listed in both directions. Some site touching the top must be joined
+     * to some site touching the bottom, or a trial on the graph would never
+     * percolate.
+     * 
+     * @param offsets
+     *            size() + 1 entries
+     * @param targets
+     * @param top
+     *            sites that touch the top
+     * @param bottom
+     *            sites that touch the bottom
+     */
+    public static Lattice graph(int[] offsets, int[] targets, int[] top, int[] bottom) {
+
+        return new Graph(offsets, targets, top, bottom);
+    }
+
+    static final class Square extends Lattice {
+
+        final int n;
+
+        Square(int n) {
+
+            if (n <= 0 || n > 46340) {
+                throw new IllegalArgumentException("N must be > 0 and <= 46340");
+            }
+            this.n = n;
+        }
+
+        @Override
+        public int size() {
+
+            return n * n;
+        }
+    }
+
+    static final class Cubic extends Lattice {
+
+        final int n;
+
+        Cubic(int n) {
+
+            if (n <= 0 || n > 1290) {
+                throw new IllegalArgumentException("N must be > 0 and <= 1290");
+            }
+            this.n = n;
+        }
+
+        @Override
+        public int size() {
+
+            return n * n * n;
+        }
+    }
+
+    static final class Graph extends Lattice {
+
+        final int[] offsets;
+        final int[] targets;
+
+        // Bit 0 marks sites touching the top, bit 1 sites touching the bottom
+        final byte[] boundary;
+
+        Graph(int[] offsets, int[] targets, int[] top, int[] bottom) {
+
+            if (offsets.length < 2 || offsets[0] != 0 || offsets[offsets.length - 1] != targets.length) {
+                throw new IllegalArgumentException("Offsets must start at 0 and end at targets.length");
+            }
+            int size = offsets.length - 1;
+            for (int s = 0; s < size; s++) {
+                if (offsets[s] > offsets[s + 1]) {
+                    throw new IllegalArgumentException("Offsets must not decrease");
+                }
+            }
+            for (int target : targets) {
+                if (target < 0 || target >= size) {
+                    throw new IndexOutOfBoundsException("Target out of bounds");
+                }
+            }
+
+            validateSites(top, size);
+            validateSites(bottom, size);
+
+            this.offsets = offsets.clone();
+            this.targets = targets.clone();
+            boundary = new byte[size];
+            for (int site : top) {
+                boundary[site] |= 1;
+            }
+            for (int site : bottom) {
+                boundary[site] |= 2;
+            }
+
+            if (!percolatesWhenOpen()) {
+                throw new IllegalArgumentException("No site touching the top is joined to one touching the bottom");
+            }
+        }
+
+        /**
+         * Determines if the graph percolates once every site is open
+         */
+        private boolean percolatesWhenOpen() {
+
+            int size = size();
+            FlaggedUnionFind components = new FlaggedUnionFind(size);
+            for (int site = 0; site < size; site++) {
+                byte flags = 0;
+                if ((boundary[site] & 1) != 0) {
+                    flags |= FlaggedUnionFind.CONNECTED_TOP;
+                }
+                if ((boundary[site] & 2) != 0) {
+                    flags |= FlaggedUnionFind.CONNECTED_BOTTOM;
+                }
+                components.open(site, flags);
+            }
+
+            for (int site = 0; site < size; site++) {
+                int root = components.find(site);
+                for (int e = offsets[site]; e < offsets[site + 1]; e++) {
+                    root = components.connect(root, targets[e]);
+                }
+                if (components.percolates(root)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static void validateSites(int[] sites, int size) {
+
+            for (int site : sites) {
+                if (site < 0 || site >= size) {
+                    throw new IndexOutOfBoundsException("Site out of bounds");
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+
+            return offsets.length - 1;
+        }
+    }
+}
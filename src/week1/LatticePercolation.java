@@ -0,0 +1,263 @@
+package week1;
+
+/**
+ * Site percolation on any {@link Lattice}, with the same union-find and
+ * top/bottom flags as {@link Percolation}. A site is full if an open path
+ * joins it to a site touching the top, and the system percolates when a full
+ * site touches the bottom.
+ * 
+ * The kind of lattice is resolved once in the constructor. Each open then runs
+ * a loop specialized for it: neighbor arithmetic for square and cubic
+ * lattices, and a walk of the adjacency arrays for general graphs.
+ * 
+ * @author Eric
+ *
+ */
+public class LatticePercolation {
+
+    private static final byte CONNECTED_TOP = FlaggedUnionFind.CONNECTED_TOP;
+    private static final byte CONNECTED_BOTTOM = FlaggedUnionFind.CONNECTED_BOTTOM;
+
+    private static final int SQUARE = 0;
+    private static final int CUBIC = 1;
+    private static final int GRAPH = 2;
+
+    private final Lattice lattice;
+    private final int kind;
+    private final int n;
+    private final int size;
+
+    private final FlaggedUnionFind components;
+    private int numOfOpenSites;
+    private boolean percolates;
+
+    /**
+     * Creates a system on a lattice with every site blocked
+     * 
+     * @param lattice
+     */
+    public LatticePercolation(Lattice lattice) {
+
+        this.lattice = lattice;
+        if (lattice instanceof Lattice.Square) {
+            kind = SQUARE;
+            n = ((Lattice.Square) lattice).n;
+        } else if (lattice instanceof Lattice.Cubic) {
+            kind = CUBIC;
+            n = ((Lattice.Cubic) lattice).n;
+        } else {
+            kind = GRAPH;
+            n = 0;
+        }
+
+        size = lattice.size();
+        components = new FlaggedUnionFind(size);
+        reset();
+    }
+
+    /**
+     * Blocks every site again so the system can be reused for another run
+     */
+    public void reset() {
+
+        components.reset();
+        numOfOpenSites = 0;
+        percolates = false;
+    }
+
+    /**
+     * The lattice of the system
+     */
+    public Lattice lattice() {
+
+        return lattice;
+    }
+
+    /**
+     * Opens a site if it is not open already
+     * 
+     * @param site
+     */
+    public void open(int site) {
+
+        validate(site);
+
+        openSite(site);
+    }
+
+    /**
+     * Opens a site without bounds checks
+     * 
+     * @param site
+     */
+    void openSite(int site) {
+
+        if (components.isOpen(site)) {
+            return;
+        }
+        numOfOpenSites++;
+
+        int root;
+        switch (kind) {
+        case SQUARE:
+            root = openSquare(site);
+            break;
+        case CUBIC:
+            root = openCubic(site);
+            break;
+        default:
+            root = openGraph(site);
+            break;
+        }
+
+        if (components.percolates(root)) {
+            percolates = true;
+        }
+    }
+
+    /**
+     * Determines if a site is open
+     * 
+     * @param site
+     * 
+     * @return if site is open
+     */
+    public boolean isOpen(int site) {
+
+        validate(site);
+
+        return components.isOpen(site);
+    }
+
+    /**
+     * Determines if a site is full
+     * 
+     * @param site
+     * 
+     * @return if site is full
+     */
+    public boolean isFull(int site) {
+
+        validate(site);
+
+        return components.isFull(site);
+    }
+
+    /**
+     * Gets the number of open sites
+     * 
+     * @return number of open sites
+     */
+    public int numberOfOpenSites() {
+
+        return numOfOpenSites;
+    }
+
+    /**
+     * Determines if the system percolates
+     * 
+     * @return if system percolates
+     */
+    public boolean percolates() {
+
+        return percolates;
+    }
+
+    private int openSquare(int site) {
+
+        int row = site / n;
+        int col = site - row * n;
+
+        byte state = 0;
+        if (row == 0) {
+            state |= CONNECTED_TOP;
+        }
+        if (row == n - 1) {
+            state |= CONNECTED_BOTTOM;
+        }
+        components.open(site, state);
+
+        int root = site;
+        if (row > 0) {
+            root = components.connect(root, site - n);
+        }
+        if (row < n - 1) {
+            root = components.connect(root, site + n);
+        }
+        if (col > 0) {
+            root = components.connect(root, site - 1);
+        }
+        if (col < n - 1) {
+            root = components.connect(root, site + 1);
+        }
+        return root;
+    }
+
+    private int openCubic(int site) {
+
+        int layerSize = n * n;
+        int layer = site / layerSize;
+        int inLayer = site - layer * layerSize;
+        int row = inLayer / n;
+        int col = inLayer - row * n;
+
+        byte state = 0;
+        if (layer == 0) {
+            state |= CONNECTED_TOP;
+        }
+        if (layer == n - 1) {
+            state |= CONNECTED_BOTTOM;
+        }
+        components.open(site, state);
+
+        int root = site;
+        if (layer > 0) {
+            root = components.connect(root, site - layerSize);
+        }
+        if (layer < n - 1) {
+            root = components.connect(root, site + layerSize);
+        }
+        if (row > 0) {
+            root = components.connect(root, site - n);
+        }
+        if (row < n - 1) {
+            root = components.connect(root, site + n);
+        }
+        if (col > 0) {
+            root = components.connect(root, site - 1);
+        }
+        if (col < n - 1) {
+            root = components.connect(root, site + 1);
+        }
+        return root;
+    }
+
+    private int openGraph(int site) {
+
+        Lattice.Graph graph = (Lattice.Graph) lattice;
+
+        byte state = 0;
+        byte boundary = graph.boundary[site];
+        if ((boundary & 1) != 0) {
+            state |= CONNECTED_TOP;
+        }
+        if ((boundary & 2) != 0) {
+            state |= CONNECTED_BOTTOM;
+        }
+        components.open(site, state);
+
+        int root = site;
+        int[] targets = graph.targets;
+        for (int e = graph.offsets[site], end = graph.offsets[site + 1]; e < end; e++) {
+            root = components.connect(root, targets[e]);
+        }
+        return root;
+    }
+
+    private void validate(int site) {
+
+        if (site < 0 || site >= size) {
+            throw new IndexOutOfBoundsException("Site out of bounds");
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package week1;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link Percolation} backed by a memory-mapped file instead of the heap,
+ * for grids with billions of sites. Sites are indexed with longs, so n is only
+ * limited by the size of the file.
+ * 
+ * Each site is one long in the file, laid out row by row: 0 for a blocked site,
+ * the index of its parent for an open site that is not a root, and the
+ * complement of its rank and top/bottom flags for a root. The file is mapped in
+ * segments of 2^27 sites because a single mapping cannot exceed 2 GB.
+ * 
+ * The grid keeps one bit per block of 2^13 sites (64 KB of file) recording
+ * whether anything in the block was written, so a reset only visits those
+ * blocks.
+ * 
+ * @author Eric
+ *
+ */
+public class MappedPercolation implements Closeable {
+
+    private static final long CONNECTED_TOP = 1;
+    private static final long CONNECTED_BOTTOM = 2;
+    private static final long CONNECTED_BOTH = CONNECTED_TOP | CONNECTED_BOTTOM;
+    private static final int FLAG_BITS = 2;
+
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    private static final int BLOCK_SHIFT = 13;
+
+    private final RandomAccessFile file;
+    private final File path;
+    private final boolean deleteOnClose;
+    // Null once closed
+    private MappedByteBuffer[] segments;
+    // One bit per block of sites, set once a site in the block is written
+    private final long[] touched;
+    private final int n;
+    private final long size;
+    private long numOfOpenSites;
+    private boolean percolates;
+
+    /**
+     * Creates an n*n grid in a temporary file that is deleted on close
+     * 
+     * @param n
+     */
+    public MappedPercolation(int n) {
+
+        this(n, createTempFile(), true);
+    }
+
+    /**
+     * Creates an n*n grid in the given file, replacing its contents
+     * 
+     * @param n
+     * @param path
+     */
+    public MappedPercolation(int n, File path) {
+
+        this(n, path, false);
+    }
+
+    private MappedPercolation(int n, File path, boolean deleteOnClose) {
+
+        if (n <= 0) {
+            throw new IllegalArgumentException("N must be > 0");
+        }
+        if (path == null) {
+            throw new NullPointerException();
+        }
+
+        this.n = n;
+        this.path = path;
+        this.deleteOnClose = deleteOnClose;
+        size = (long) n * n;
+
+        // Site 0 is unused so sites can be numbered from 1 like Percolation
+        long sites = size + 1;
+        segments = new MappedByteBuffer[(int) ((sites - 1) >>> SEGMENT_SHIFT) + 1];
+        touched = new long[(int) ((sites - 1) >>> (BLOCK_SHIFT + 6)) + 1];
+        try {
+            file = new RandomAccessFile(path, "rw");
+            file.setLength(0);
+            file.setLength(sites * Long.BYTES);
+
+            FileChannel channel = file.getChannel();
+            for (int i = 0; i < segments.length; i++) {
+                long start = ((long) i << SEGMENT_SHIFT) * Long.BYTES;
+                long length = Math.min(sites * Long.BYTES - start, (SEGMENT_MASK + 1) * Long.BYTES);
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, length);
+                segments[i].order(ByteOrder.nativeOrder());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Blocks every site again so the grid can be reused for another run. Only
+     * the blocks written since the last reset are read, so the cost follows
+     * the sites opened rather than the size of the file. Within those blocks
+     * only nonzero sites are cleared: writing zeros to the pages of a sparse
+     * file that were never touched would allocate them on disk.
+     */
+    public void reset() {
+
+        ensureOpen();
+
+        for (int word = 0; word < touched.length; word++) {
+            long bits = touched[word];
+            while (bits != 0) {
+                long block = ((long) word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+
+                long first = block << BLOCK_SHIFT;
+                long last = Math.min(size, first + (1L << BLOCK_SHIFT) - 1);
+                for (long site = first; site <= last; site++) {
+                    if (get(site) != 0L) {
+                        put(site, 0L);
+                    }
+                }
+            }
+            touched[word] = 0L;
+        }
+        numOfOpenSites = 0;
+        percolates = false;
+    }
+
+    /**
+     * Opens a site if it is not open already
+     * 
+     * @param row
+     * @param col
+     */
+    public void open(int row, int col) {
+
+        ensureOpen();
+        validate2DCoords(row, col);
+
+        openUnchecked(twoDimToOneDim(row, col), row, col);
+    }
+
+    /**
+     * Opens a site by its 1D index, from 1 to n*n, without bounds checks
+     * 
+     * @param site
+     */
+    void openSite(long site) {
+
+        ensureOpen();
+        int row = (int) ((site - 1) / n) + 1;
+        openUnchecked(site, row, (int) (site - (long) (row - 1) * n));
+    }
+
+    /**
+     * Determines if a site is open
+     * 
+     * @param row
+     * @param col
+     * 
+     * @return if site is open
+     */
+    public boolean isOpen(int row, int col) {
+
+        ensureOpen();
+        validate2DCoords(row, col);
+
+        return get(twoDimToOneDim(row, col)) != 0;
+    }
+
+    /**
+     * Determines if a site is full
+     * 
+     * @param row
+     * @param col
+     * 
+     * @return if site is full
+     */
+    public boolean isFull(int row, int col) {
+
+        ensureOpen();
+        validate2DCoords(row, col);
+
+        long site = twoDimToOneDim(row, col);
+        if (get(site) == 0) {
+            return false;
+        }
+
+        return (~get(find(site)) & CONNECTED_TOP) != 0;
+    }
+
+    /**
+     * Gets the number of open sites
+     * 
+     * @return number of open sites
+     */
+    public long numberOfOpenSites() {
+
+        ensureOpen();
+        return numOfOpenSites;
+    }
+
+    /**
+     * Determines if the system percolates
+     * 
+     * @return if system percolates
+     */
+    public boolean percolates() {
+
+        ensureOpen();
+        return percolates;
+    }
+
+    /**
+     * Closes the grid's file and deletes it if it was temporary. Java cannot
+     * unmap a buffer explicitly, so the grid drops its mappings for the
+     * garbage collector to release; any later use of the grid throws an
+     * IllegalStateException.
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (segments == null) {
+            return;
+        }
+        segments = null;
+        file.close();
+        if (deleteOnClose && !path.delete()) {
+            path.deleteOnExit();
+        }
+    }
+
+    /**
+     * Opens a site if it is not open already and connects it to its open
+     * neighbors
+     * 
+     * @param site
+     * @param row
+     * @param col
+     */
+    private void openUnchecked(long site, int row, int col) {
+
+        if (get(site) != 0) {
+            return;
+        }
+
+        numOfOpenSites++;
+
+        long state = 0;
+
+        // Connect to virtual top site if row 1
+        if (row == 1) {
+            state |= CONNECTED_TOP;
+        }
+
+        // Connect to virtual bottom site if last row
+        if (row == n) {
+            state |= CONNECTED_BOTTOM;
+        }
+
+        // The new site starts as a rank 0 root and absorbs each open neighbor
+        set(site, ~state);
+        long root = site;
+
+        // Connect up
+        if (row > 1) {
+            root = connect(root, site - n);
+        }
+
+        // Connect down
+        if (row < n) {
+            root = connect(root, site + n);
+        }
+
+        // Connect left
+        if (col > 1) {
+            root = connect(root, site - 1);
+        }
+
+        // Connect Right
+        if (col < n) {
+            root = connect(root, site + 1);
+        }
+
+        if ((~get(root) & CONNECTED_BOTH) == CONNECTED_BOTH) {
+            percolates = true;
+        }
+    }
+
+    /**
+     * Merges a neighbor's component into the component rooted at root, if the
+     * neighbor is open
+     * 
+     * @param root
+     * @param neighbor
+     * 
+     * @return root of the merged component
+     */
+    private long connect(long root, long neighbor) {
+
+        if (get(neighbor) == 0) {
+            return root;
+        }
+
+        long neighborRoot = find(neighbor);
+        if (neighborRoot == root) {
+            return root;
+        }
+
+        long rootInfo = ~get(root);
+        long neighborInfo = ~get(neighborRoot);
+        long state = (rootInfo | neighborInfo) & CONNECTED_BOTH;
+        long rank = rootInfo >>> FLAG_BITS;
+        long neighborRank = neighborInfo >>> FLAG_BITS;
+
+        if (rank < neighborRank) {
+            set(root, neighborRoot);
+            set(neighborRoot, ~(neighborRank << FLAG_BITS | state));
+            return neighborRoot;
+        }
+
+        if (rank == neighborRank) {
+            rank++;
+        }
+        set(neighborRoot, root);
+        set(root, ~(rank << FLAG_BITS | state));
+        return root;
+    }
+
+    /**
+     * Finds the root of an open site's component, pointing every other site on
+     * the path at its grandparent along the way
+     * 
+     * @param site
+     * 
+     * @return root of the component
+     */
+    private long find(long site) {
+
+        while (true) {
+            long p = get(site);
+            if (p < 0) {
+                return site;
+            }
+            long grandparent = get(p);
+            if (grandparent < 0) {
+                return p;
+            }
+            set(site, grandparent);
+            site = grandparent;
+        }
+    }
+
+    private void ensureOpen() {
+
+        if (segments == null) {
+            throw new IllegalStateException("Grid is closed");
+        }
+    }
+
+    private long get(long site) {
+
+        return segments[(int) (site >>> SEGMENT_SHIFT)].getLong((int) (site & SEGMENT_MASK) << 3);
+    }
+
+    private void set(long site, long value) {
+
+        long block = site >>> BLOCK_SHIFT;
+        touched[(int) (block >>> 6)] |= 1L << block;
+        put(site, value);
+    }
+
+    private void put(long site, long value) {
+
+        segments[(int) (site >>> SEGMENT_SHIFT)].putLong((int) (site & SEGMENT_MASK) << 3, value);
+    }
+
+    /**
+     * Converts 2D coords into 1D
+     * 
+     * @param row
+     * @param col
+     * 
+     * @return 1D coords
+     */
+    private long twoDimToOneDim(int row, int col) {
+
+        return (long) (row - 1) * n + col;
+    }
+
+    /**
+     * Validates a coordinate
+     * 
+     * @param row
+     * @param col
+     */
+    private void validate2DCoords(int row, int col) {
+
+        if (row > n || col > n || row <= 0 || col <= 0) {
+            throw new IndexOutOfBoundsException("Row or Col out of bounds");
+        }
+    }
+
+    private static File createTempFile() {
+
+        try {
+            return File.createTempFile("percolation", ".grid");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
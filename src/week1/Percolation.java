@@ -1,6 +1,7 @@
 package week1;
 
-import edu.princeton.cs.algs4.WeightedQuickUnionUF;
+import java.util.Arrays;
+import java.util.BitSet;
 
 /**
  * We model a percolation system using an n-by-n grid of sites. Each site is
@@ -11,20 +12,37 @@ import edu.princeton.cs.algs4.WeightedQuickUnionUF;
  * connected to the top row and that process fills some open site on the bottom
  * row.
  * 
+ * An instance can be cleared with {@link #reset()} and reused for another run
+ * on the same grid without allocating anything.
+ * 
+ * The batch methods take sites either as parallel row and column arrays or as
+ * packed 1D indices, where site (row, col) is (row - 1) * n + col. A batch is
+ * validated once up front and then processed in a tight loop, so it is either
+ * applied completely or not at all.
+ * 
+ * When created with fill time tracking, the grid also records for every site
+ * the number of open sites at the moment it became full. Each component keeps
+ * a circular list of its sites. When a component that is not full joins a
+ * full one, only its own list is walked, so every site is stamped once and
+ * the whole fill-time map costs about as much as the run itself. The sites are
+ * also kept in the order they became full, so a caller can pick up just the
+ * ones filled since it last looked.
+ * 
  * @author Eric
  *
  */
 public class Percolation {
 
-    private static final byte CLOSED = 0;
-    private static final byte OPEN = 1;
-    private static final byte CONNECTED_TOP = 2;
-    private static final byte CONNECTED_BOTTOM = 4;
-    private static final byte CONNECTED_BOTH = 8;
+    // Open sites and their components, with top and bottom flags
+    private final FlaggedUnionFind components;
 
-    private WeightedQuickUnionUF uf;
+    // Only allocated when fill times are tracked. members links the sites of a
+    // component in a circular list; fillTime is 0 until a site is full.
+    private int[] members;
+    private int[] fillTime;
+    private int[] fillOrder;
+    private int numOfFullSites;
 
-    private byte[] status;
     private int n;
     private int numOfOpenSites;
     private int size;
@@ -37,14 +55,47 @@ public class Percolation {
      */
     public Percolation(int n) {
 
+        this(n, false);
+    }
+
+    /**
+     * Creates an n*n grid that can also record when each site became full
+     * 
+     * @param n
+     * @param trackFillTimes
+     */
+    public Percolation(int n, boolean trackFillTimes) {
+
         if (n <= 0) {
             throw new IllegalArgumentException("N must be > 0");
         }
 
         size = n * n;
         this.n = n;
-        status = new byte[size + 1];
-        uf = new WeightedQuickUnionUF(size + 1);
+        components = new FlaggedUnionFind(size + 1);
+        if (trackFillTimes) {
+            members = new int[size + 1];
+            fillTime = new int[size + 1];
+            fillOrder = new int[size];
+        }
+        reset();
+    }
+
+    /**
+     * Blocks every site again so the grid can be reused for another run
+     */
+    public void reset() {
+
+        components.reset();
+        if (members != null) {
+            for (int i = 0; i <= size; i++) {
+                members[i] = i;
+            }
+            Arrays.fill(fillTime, 0);
+            numOfFullSites = 0;
+        }
+        numOfOpenSites = 0;
+        percolates = false;
     }
 
     /**
@@ -57,9 +108,31 @@ public class Percolation {
 
         validate2DCoords(row, col);
 
-        int site = twoDimToOneDim(row, col);
+        openUnchecked(twoDimToOneDim(row, col), row, col);
+    }
 
-        if (status[site] != CLOSED) {
+    /**
+     * Opens a site by its 1D index, from 1 to n*n, without bounds checks
+     * 
+     * @param site
+     */
+    void openSite(int site) {
+
+        int row = (site - 1) / n + 1;
+        openUnchecked(site, row, site - (row - 1) * n);
+    }
+
+    /**
+     * Opens a site if it is not open already and connects it to its open
+     * neighbors
+     * 
+     * @param site
+     * @param row
+     * @param col
+     */
+    private void openUnchecked(int site, int row, int col) {
+
+        if (components.isOpen(site)) {
             return;
         }
 
@@ -68,67 +141,75 @@ public class Percolation {
 
         // Connect to virtual top site if row 1
         if (row == 1) {
-            state += CONNECTED_TOP;
+            state |= FlaggedUnionFind.CONNECTED_TOP;
         }
 
         // Connect to virtual bottom site if last row
         if (row == n) {
-            state += CONNECTED_BOTTOM;
+            state |= FlaggedUnionFind.CONNECTED_BOTTOM;
+        }
+
+        // The new site starts as its own root and absorbs each open neighbor
+        components.open(site, state);
+        int root = site;
+        if (members != null && (state & FlaggedUnionFind.CONNECTED_TOP) != 0) {
+            fillTime[site] = numOfOpenSites;
+            fillOrder[numOfFullSites++] = site;
         }
+
         // Connect up
         if (row > 1) {
-            int siteUp = twoDimToOneDim(row - 1, col);
-            if (status[siteUp] != CLOSED) {
-                state |= status[uf.find(siteUp)];
-                uf.union(site, siteUp);
-            }
+            root = connect(root, site - n);
         }
 
         // Connect down
         if (row < n) {
-            int siteDown = twoDimToOneDim(row + 1, col);
-            if (status[siteDown] != CLOSED) {
-                state |= status[uf.find(siteDown)];
-                uf.union(site, siteDown);
-            }
+            root = connect(root, site + n);
         }
 
         // Connect left
         if (col > 1) {
-            int siteLeft = twoDimToOneDim(row, col - 1);
-            if (status[siteLeft] != CLOSED) {
-                state |= status[uf.find(siteLeft)];
-                uf.union(site, siteLeft);
-            }
+            root = connect(root, site - 1);
         }
 
         // Connect Right
         if (col < n) {
-            int siteRight = twoDimToOneDim(row, col + 1);
-            if (status[siteRight] != CLOSED) {
-                state |= status[uf.find(siteRight)];
-                uf.union(site, siteRight);
-            }
+            root = connect(root, site + 1);
         }
 
-        int siteRoot = uf.find(site);
-        status[siteRoot] = OPEN;
-        status[site] = OPEN;
-
-        if ((state & CONNECTED_BOTH) == CONNECTED_BOTH) {
-            status[siteRoot] = CONNECTED_BOTH;
-        } else if ((state & CONNECTED_TOP) == CONNECTED_TOP && (state & CONNECTED_BOTTOM) == CONNECTED_BOTTOM) {
-            status[siteRoot] = CONNECTED_BOTH;
-        } else if ((state & CONNECTED_TOP) == CONNECTED_TOP) {
-            status[siteRoot] = CONNECTED_TOP;
-        } else if ((state & CONNECTED_BOTTOM) == CONNECTED_BOTTOM) {
-            status[siteRoot] = CONNECTED_BOTTOM;
+        if (components.percolates(root)) {
+            percolates = true;
         }
 
-        if (status[siteRoot] == CONNECTED_BOTH) {
-            percolates = true;
+    }
+
+    /**
+     * Opens every site given as a (rows[i], cols[i]) pair
+     * 
+     * @param rows
+     * @param cols
+     */
+    public void openAll(int[] rows, int[] cols) {
+
+        validate2DCoords(rows, cols);
+
+        for (int i = 0; i < rows.length; i++) {
+            openUnchecked(twoDimToOneDim(rows[i], cols[i]), rows[i], cols[i]);
         }
+    }
 
+    /**
+     * Opens every site given as a packed 1D index
+     * 
+     * @param sites
+     */
+    public void openAll(int[] sites) {
+
+        validateSites(sites);
+
+        for (int site : sites) {
+            openSite(site);
+        }
     }
 
     /**
@@ -143,9 +224,7 @@ public class Percolation {
 
         validate2DCoords(row, col);
 
-        int site = twoDimToOneDim(row, col);
-
-        return status[site] != CLOSED;
+        return components.isOpen(twoDimToOneDim(row, col));
     }
 
     /**
@@ -160,10 +239,100 @@ public class Percolation {
 
         validate2DCoords(row, col);
 
-        int site = twoDimToOneDim(row, col);
-        int root = uf.find(site);
+        return isFullSite(twoDimToOneDim(row, col));
+    }
+
+    /**
+     * Determines which of the (rows[i], cols[i]) sites are full
+     * 
+     * @param rows
+     * @param cols
+     * @param full
+     *            set to whether each site is full
+     */
+    public void isFullAll(int[] rows, int[] cols, boolean[] full) {
+
+        validate2DCoords(rows, cols);
+        if (full.length < rows.length) {
+            throw new IllegalArgumentException("Result array is too short");
+        }
+
+        for (int i = 0; i < rows.length; i++) {
+            full[i] = isFullSite(twoDimToOneDim(rows[i], cols[i]));
+        }
+    }
+
+    /**
+     * Determines which of the sites, given as packed 1D indices, are full
+     * 
+     * @param sites
+     * @param full
+     *            bit i is set if sites[i] is full and cleared otherwise
+     */
+    public void isFullAll(int[] sites, BitSet full) {
 
-        return status[root] == CONNECTED_TOP || status[root] == CONNECTED_BOTH;
+        validateSites(sites);
+
+        for (int i = 0; i < sites.length; i++) {
+            full.set(i, isFullSite(sites[i]));
+        }
+    }
+
+    /**
+     * Takes a snapshot of every full site
+     * 
+     * @param full
+     *            bit site is set for every full site, as a packed 1D index,
+     *            and cleared for the others
+     */
+    public void fullSites(BitSet full) {
+
+        full.clear();
+        for (int site = 1; site <= size; site++) {
+            if (isFullSite(site)) {
+                full.set(site);
+            }
+        }
+    }
+
+    /**
+     * Gets the step at which a site became full, counted as the number of open
+     * sites right after the open that filled it. Needs a grid created with
+     * fill time tracking.
+     * 
+     * @param row
+     * @param col
+     * 
+     * @return step at which the site became full, or 0 if it is not full
+     */
+    public int fillTime(int row, int col) {
+
+        if (fillTime == null) {
+            throw new UnsupportedOperationException("Fill times are not tracked");
+        }
+        validate2DCoords(row, col);
+
+        return fillTime[twoDimToOneDim(row, col)];
+    }
+
+    /**
+     * Gets the number of full sites, when fill times are tracked
+     */
+    int numberOfFullSites() {
+
+        return numOfFullSites;
+    }
+
+    /**
+     * Gets the i-th site to become full, as a 1D index, when fill times are
+     * tracked
+     * 
+     * @param i
+     *            from 0 to numberOfFullSites() - 1
+     */
+    int fullSite(int i) {
+
+        return fillOrder[i];
     }
 
     /**
@@ -186,6 +355,78 @@ public class Percolation {
         return percolates;
     }
 
+    /**
+     * Merges a neighbor's component into the component rooted at root, if the
+     * neighbor is open
+     * 
+     * @param root
+     * @param neighbor
+     * 
+     * @return root of the merged component
+     */
+    private int connect(int root, int neighbor) {
+
+        if (members == null) {
+            return components.connect(root, neighbor);
+        }
+
+        if (!components.isOpen(neighbor)) {
+            return root;
+        }
+
+        int neighborRoot = components.find(neighbor);
+        if (neighborRoot == root) {
+            return root;
+        }
+
+        mergeMembers(root, neighborRoot);
+        return components.union(root, neighborRoot);
+    }
+
+    private boolean isFullSite(int site) {
+
+        return components.isFull(site);
+    }
+
+    /**
+     * Joins the member lists of two components about to be merged, first
+     * stamping the fill time of every site in the one that is becoming full.
+     * Once a component is full its list is never walked again.
+     * 
+     * @param rootP
+     * @param rootQ
+     */
+    private void mergeMembers(int rootP, int rootQ) {
+
+        boolean fullP = components.isFullRoot(rootP);
+        boolean fullQ = components.isFullRoot(rootQ);
+        if (fullP && !fullQ) {
+            stampFillTime(rootQ);
+        } else if (fullQ && !fullP) {
+            stampFillTime(rootP);
+        }
+
+        // Swapping one successor from each circle splices them into one
+        int next = members[rootP];
+        members[rootP] = members[rootQ];
+        members[rootQ] = next;
+    }
+
+    /**
+     * Records the current step as the fill time of every site in a component
+     * 
+     * @param root
+     */
+    private void stampFillTime(int root) {
+
+        int site = root;
+        do {
+            fillTime[site] = numOfOpenSites;
+            fillOrder[numOfFullSites++] = site;
+            site = members[site];
+        } while (site != root);
+    }
+
     /**
      * Converts 2D coords into 1D
      * 
@@ -211,4 +452,34 @@ public class Percolation {
             throw new IndexOutOfBoundsException("Row or Col out of bounds");
         }
     }
+
+    /**
+     * Validates a batch of coordinates
+     * 
+     * @param rows
+     * @param cols
+     */
+    private void validate2DCoords(int[] rows, int[] cols) {
+
+        if (rows.length != cols.length) {
+            throw new IllegalArgumentException("Rows and Cols must have the same length");
+        }
+        for (int i = 0; i < rows.length; i++) {
+            validate2DCoords(rows[i], cols[i]);
+        }
+    }
+
+    /**
+     * Validates a batch of 1D sites
+     * 
+     * @param sites
+     */
+    private void validateSites(int[] sites) {
+
+        for (int site : sites) {
+            if (site <= 0 || site > size) {
+                throw new IndexOutOfBoundsException("Site out of bounds");
+            }
+        }
+    }
 }
@@ -0,0 +1,220 @@
+package week1;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import edu.princeton.cs.algs4.In;
+
+/**
+ * Writes a percolation run to a sequence of PNG frames without a window. The
+ * frames are drawn incrementally by a {@link PercolationImage}, copied every
+ * k opens, and encoded on a background thread while the run goes on. At most
+ * a couple of frames wait to be encoded; beyond that the run waits for the
+ * encoder, which bounds the memory used.
+ * 
+ * Execution: java week1.PercolationFrameExporter input.txt outDir k [cellSize],
+ * java week1.PercolationFrameExporter replay.bin outDir k [cellSize] for a
+ * binary replay from {@link ReplayWriter}, or
+ * java week1.PercolationFrameExporter -random n seed outDir k [cellSize]
+ * 
+ * @author Eric
+ *
+ */
+public class PercolationFrameExporter implements Closeable {
+
+    private static final int QUEUED_FRAMES = 2;
+
+    private final Percolation perc;
+    private final PercolationImage picture;
+    private final File directory;
+    private final int every;
+    private final ThreadPoolExecutor encoder;
+    private final List<Future<?>> pending = new ArrayList<Future<?>>();
+    private int opensSinceFrame;
+    private int frames;
+
+    /**
+     * Prepares to export a run on an n-by-n grid
+     * 
+     * @param n
+     * @param cellSize
+     *            pixels on each side of a site
+     * @param directory
+     *            where the frames are written, created if needed
+     * @param every
+     *            number of opens between frames
+     */
+    public PercolationFrameExporter(int n, int cellSize, File directory, int every) {
+
+        if (every <= 0) {
+            throw new IllegalArgumentException("every must be greater than 0");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create " + directory);
+        }
+
+        perc = new Percolation(n, true);
+        picture = new PercolationImage(n, cellSize);
+        this.directory = directory;
+        this.every = every;
+        encoder = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUED_FRAMES), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Opens a site, writing a frame after every k opens
+     * 
+     * @param row
+     * @param col
+     */
+    public void open(int row, int col) {
+
+        perc.open(row, col);
+        picture.siteOpened(row, col);
+
+        if (++opensSinceFrame == every) {
+            writeFrame();
+        }
+    }
+
+    /**
+     * The system being exported
+     */
+    public Percolation percolation() {
+
+        return perc;
+    }
+
+    /**
+     * Writes the last frame if opens happened since the previous one, then
+     * waits for every frame to be encoded
+     */
+    @Override
+    public void close() throws IOException {
+
+        try {
+            if (opensSinceFrame > 0 || frames == 0) {
+                writeFrame();
+            }
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing frames", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not write a frame", e.getCause());
+        } finally {
+            encoder.shutdownNow();
+        }
+    }
+
+    /**
+     * Copies the current image and queues it for encoding
+     */
+    private void writeFrame() {
+
+        picture.update(perc);
+        picture.takeDirty();
+
+        BufferedImage image = picture.image();
+        final BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        image.copyData(copy.getRaster());
+
+        final File file = new File(directory, String.format("frame-%06d.png", frames++));
+        opensSinceFrame = 0;
+
+        // Drop futures of frames already written so the list stays short
+        while (!pending.isEmpty() && pending.get(0).isDone()) {
+            pending.remove(0);
+        }
+        pending.add(encoder.submit(new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+                    ImageIO.write(copy, "png", file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }));
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        System.setProperty("java.awt.headless", "true");
+
+        boolean random = args[0].equals("-random");
+        int first = random ? 3 : 1;
+        File directory = new File(args[first]);
+        int every = Integer.parseInt(args[first + 1]);
+        int cellSize = args.length > first + 2 ? Integer.parseInt(args[first + 2]) : 1;
+
+        if (random) {
+            int n = Integer.parseInt(args[1]);
+            TrialRandom rnd = new TrialRandom();
+            rnd.reseed(Long.parseLong(args[2]));
+
+            // Open sites in a random order until the system percolates
+            int[] sites = new int[n * n];
+            for (int i = 0; i < sites.length; i++) {
+                sites[i] = i;
+            }
+            PercolationFrameExporter exporter = new PercolationFrameExporter(n, cellSize, directory, every);
+            try {
+                for (int i = 0; !exporter.percolation().percolates(); i++) {
+                    int swap = i + rnd.nextInt(sites.length - i);
+                    int site = sites[swap];
+                    sites[swap] = sites[i];
+                    sites[i] = site;
+                    exporter.open(site / n + 1, site % n + 1);
+                }
+            } finally {
+                exporter.close();
+            }
+        } else if (args[0].endsWith(".bin")) {
+            ReplayReader replay = new ReplayReader(new File(args[0]));
+            try {
+                int n = replay.n();
+                PercolationFrameExporter exporter = new PercolationFrameExporter(n, cellSize, directory, every);
+                try {
+                    for (long i = 0; i < replay.size(); i++) {
+                        int site = replay.site(i) - 1;
+                        exporter.open(site / n + 1, site % n + 1);
+                    }
+                } finally {
+                    exporter.close();
+                }
+            } finally {
+                replay.close();
+            }
+        } else {
+            In in = new In(args[0]);
+            int n = in.readInt();
+            PercolationFrameExporter exporter = new PercolationFrameExporter(n, cellSize, directory, every);
+            try {
+                while (!in.isEmpty()) {
+                    int i = in.readInt();
+                    int j = in.readInt();
+                    exporter.open(i, j);
+                }
+            } finally {
+                exporter.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package week1;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Keeps an image of a percolation system up to date incrementally. Only the
+ * sites that changed are painted: each site as it opens, and each site as it
+ * becomes full, taken from the fill order of a {@link Percolation} that
+ * tracks fill times. Painting writes straight into the pixel buffer.
+ * 
+ * Colors match {@link PercolationVisualizer}: full sites in light blue, open
+ * sites in white and blocked sites in black, with site (1, 1) in the upper
+ * left-hand corner. The colors are spelled out rather than taken from StdDraw,
+ * which opens a window as soon as it is loaded.
+ * 
+ * @author Eric
+ *
+ */
+public class PercolationImage {
+
+    private static final int BLOCKED = Color.BLACK.getRGB();
+    private static final int OPEN = Color.WHITE.getRGB();
+    private static final int FULL = new Color(103, 198, 243).getRGB();
+
+    private final BufferedImage image;
+    private final int[] pixels;
+    private final int n;
+    private final int cellSize;
+
+    // Full sites painted so far, as a position in the fill order
+    private int fullSitesPainted;
+
+    // Smallest rectangle around everything painted since the last takeDirty
+    private int dirtyMinX = Integer.MAX_VALUE;
+    private int dirtyMinY = Integer.MAX_VALUE;
+    private int dirtyMaxX = -1;
+    private int dirtyMaxY = -1;
+
+    /**
+     * Creates an image of an n-by-n system with every site blocked
+     * 
+     * @param n
+     * @param cellSize
+     *            pixels on each side of a site
+     */
+    public PercolationImage(int n, int cellSize) {
+
+        if (n <= 0 || cellSize <= 0) {
+            throw new IllegalArgumentException("n and cell size must be greater than 0");
+        }
+        long side = (long) n * cellSize;
+        if (side * side > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Image is too large");
+        }
+
+        this.n = n;
+        this.cellSize = cellSize;
+        image = new BufferedImage(n * cellSize, n * cellSize, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, BLOCKED);
+    }
+
+    /**
+     * Paints a site that was just opened. Call {@link #update} afterwards to
+     * paint the sites that became full. Sites that were already open are left
+     * as they are.
+     * 
+     * @param row
+     * @param col
+     */
+    public void siteOpened(int row, int col) {
+
+        int border = cellSize >= 4 ? 1 : 0;
+        int corner = ((row - 1) * cellSize + border) * n * cellSize + (col - 1) * cellSize + border;
+        if (pixels[corner] == BLOCKED) {
+            paint(row, col, OPEN);
+        }
+    }
+
+    /**
+     * Paints every site that became full since the last update
+     * 
+     * @param perc
+     *            the system being drawn, created with fill time tracking
+     */
+    public void update(Percolation perc) {
+
+        int full = perc.numberOfFullSites();
+        for (; fullSitesPainted < full; fullSitesPainted++) {
+            int site = perc.fullSite(fullSitesPainted) - 1;
+            paint(site / n + 1, site % n + 1, FULL);
+        }
+    }
+
+    /**
+     * The image. Callers that read it from another thread should synchronize
+     * on it, as painting does.
+     */
+    public BufferedImage image() {
+
+        return image;
+    }
+
+    /**
+     * Returns the region painted since the last call and starts a new one
+     * 
+     * @return the region, or null if nothing was painted
+     */
+    public Rectangle takeDirty() {
+
+        if (dirtyMaxX < 0) {
+            return null;
+        }
+
+        Rectangle dirty = new Rectangle(dirtyMinX, dirtyMinY, dirtyMaxX - dirtyMinX + 1, dirtyMaxY - dirtyMinY + 1);
+        dirtyMinX = Integer.MAX_VALUE;
+        dirtyMinY = Integer.MAX_VALUE;
+        dirtyMaxX = -1;
+        dirtyMaxY = -1;
+        return dirty;
+    }
+
+    /**
+     * Fills one site's cell, leaving a one pixel border when cells are large
+     * enough for it to show
+     * 
+     * @param row
+     * @param col
+     * @param rgb
+     */
+    private void paint(int row, int col, int rgb) {
+
+        int border = cellSize >= 4 ? 1 : 0;
+        int x0 = (col - 1) * cellSize + border;
+        int y0 = (row - 1) * cellSize + border;
+        int x1 = col * cellSize - border;
+        int y1 = row * cellSize - border;
+        int width = n * cellSize;
+
+        synchronized (image) {
+            for (int y = y0; y < y1; y++) {
+                int offset = y * width;
+                for (int x = x0; x < x1; x++) {
+                    pixels[offset + x] = rgb;
+                }
+            }
+        }
+
+        dirtyMinX = Math.min(dirtyMinX, x0);
+        dirtyMinY = Math.min(dirtyMinY, y0);
+        dirtyMaxX = Math.max(dirtyMaxX, x1 - 1);
+        dirtyMaxY = Math.max(dirtyMaxY, y1 - 1);
+    }
+}
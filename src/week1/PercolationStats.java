@@ -1,44 +1,399 @@
 package week1;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.StdStats;
 
 /**
  * Performs tests on {@link Percolation.java}
  * 
+ * Trials are spread over a pool of workers. Every trial draws from its own
+ * random stream derived from a master seed and the trial index, so the results
+ * for a given seed are the same no matter how many threads run them.
+ * 
+ * Results are not stored per trial. Trials are grouped into at most
+ * {@value #MAX_CHUNKS} chunks, each worker keeps the thresholds of its current
+ * chunk in a small reused buffer, and the chunks are added to a single
+ * {@link StatsAccumulator} in trial order as they finish. That keeps the order
+ * of the additions, and so the result, independent of the thread count. A
+ * worker may only run ahead of the next chunk to add by a couple of chunks per
+ * worker, so at most that many finished chunks wait to be added.
+ * 
+ * Instead of a fixed number of trials, {@link #untilHalfWidth} keeps running
+ * batches of trials until the 95% confidence interval is narrow enough or a
+ * trial budget runs out.
+ * 
  * @author Eric
  *
  */
 public class PercolationStats {
 
-    private double[] trials;
+    private static final int MAX_CHUNKS = 4096;
+
+    // Chunks of tiny grids hold enough trials to cover about this many sites,
+    // up to MIN_CHUNK trials, so claiming and finishing a chunk stays cheap
+    // next to the trials in it
+    private static final int MIN_CHUNK = 64;
+    private static final int MIN_CHUNK_SITES = 1 << 16;
+    private static final int QUANTILE_BINS = 4096;
+    private static final int FIRST_BATCH = 64;
+    private static final double CONFIDENCE_95 = 1.96;
+
+    private final StatsAccumulator stats;
+    private final long trialNanos;
+    private final double mean;
+    private final double stddev;
+    private final double confidenceLo;
+    private final double confidenceHi;
 
     /**
-     * perform trials on an n-by-n grid
+     * perform trials on an n-by-n grid using every available core
      * 
      * @param n
      * @param numOfTrials
      */
     public PercolationStats(int n, int numOfTrials) {
 
-        if (n <= 0 || numOfTrials <= 0) {
-            throw new IllegalArgumentException(" n and number of trials must be greater than 0");
+        this(n, numOfTrials, StdRandom.getSeed(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * perform trials on an n-by-n grid with a fixed number of threads
+     * 
+     * @param n
+     * @param numOfTrials
+     * @param seed
+     *            master seed of the campaign
+     * @param threads
+     */
+    public PercolationStats(int n, int numOfTrials, long seed, int threads) {
+
+        this(n, numOfTrials, seed, threads, TrialMode.REJECTION);
+    }
+
+    /**
+     * perform trials on an n-by-n grid with a fixed number of threads
+     * 
+     * @param n
+     * @param numOfTrials
+     * @param seed
+     *            master seed of the campaign
+     * @param threads
+     * @param mode
+     *            how each trial picks the sites to open
+     */
+    public PercolationStats(int n, int numOfTrials, long seed, int threads, TrialMode mode) {
+
+        this(runTrials(n, numOfTrials, seed, threads, mode));
+    }
+
+    /**
+     * perform trials on an n-by-n grid on an existing executor
+     * 
+     * @param n
+     * @param numOfTrials
+     * @param seed
+     *            master seed of the campaign
+     * @param executor
+     * @param workers
+     *            number of worker tasks to submit to the executor
+     */
+    public PercolationStats(int n, int numOfTrials, long seed, ExecutorService executor, int workers) {
+
+        this(n, numOfTrials, seed, executor, workers, TrialMode.REJECTION);
+    }
+
+    /**
+     * perform trials on an n-by-n grid on an existing executor
+     * 
+     * @param n
+     * @param numOfTrials
+     * @param seed
+     *            master seed of the campaign
+     * @param executor
+     * @param workers
+     *            number of worker tasks to submit to the executor
+     * @param mode
+     *            how each trial picks the sites to open
+     */
+    public PercolationStats(int n, int numOfTrials, long seed, ExecutorService executor, int workers,
+            TrialMode mode) {
+
+        this(runTrials(n, numOfTrials, seed, executor, workers, mode));
+    }
+
+    /**
+     * perform trials on any lattice with a fixed number of threads
+     * 
+     * Square lattices run on {@link Percolation} exactly like the n-by-n
+     * constructors. Other lattices run on {@link LatticePercolation}, which
+     * supports the REJECTION and SHUFFLED modes.
+     * 
+     * @param lattice
+     * @param numOfTrials
+     * @param seed
+     *            master seed of the campaign
+     * @param threads
+     * @param mode
+     *            how each trial picks the sites to open
+     */
+    public PercolationStats(Lattice lattice, int numOfTrials, long seed, int threads, TrialMode mode) {
+
+        this(runTrials(lattice, numOfTrials, seed, threads, mode));
+    }
+
+    /**
+     * perform trials of bond percolation on an n-by-n grid, where every site is
+     * open and the bonds between neighbors open in a random order. The
+     * statistics are of the fraction of bonds open when the system first
+     * percolates, which is close to 1/2.
+     * 
+     * @param n
+     *            at least 2, so the grid has bonds
+     * @param numOfTrials
+     * @param seed
+     *            master seed of the campaign
+     * @param threads
+     * 
+     * @return the statistics of the bond thresholds
+     */
+    public static PercolationStats bonds(int n, int numOfTrials, long seed, int threads) {
+
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be greater than 0");
+        }
+        validate(n, numOfTrials, TrialMode.SHUFFLED);
+        if (n < 2) {
+            throw new IllegalArgumentException("bond percolation needs n of at least 2");
         }
-        trials = new double[numOfTrials];
 
-        for (int i = 0; i < numOfTrials; i++) {
-            Percolation p = new Percolation(n);
-            int openSites = 0;
-            while (!p.percolates()) {
-                int rndRow = StdRandom.uniform(n) + 1;
-                int rndCol = StdRandom.uniform(n) + 1;
-                if (!p.isOpen(rndRow, rndCol)) {
-                    p.open(rndRow, rndCol);
-                    openSites++;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            return new PercolationStats(runCampaign(new Campaign(n, null, true, 0, numOfTrials, seed,
+                    TrialMode.SHUFFLED), executor, threads));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private PercolationStats(Campaign campaign) {
+
+        this(campaign.total, campaign.trialNanos);
+    }
+
+    private PercolationStats(StatsAccumulator stats, long trialNanos) {
+
+        this.stats = stats;
+        this.trialNanos = trialNanos;
+        mean = stats.mean();
+        stddev = stats.stddev();
+        double halfWidth = halfWidth(stats);
+        confidenceLo = mean - halfWidth;
+        confidenceHi = mean + halfWidth;
+    }
+
+    /**
+     * perform batches of trials on an n-by-n grid until the 95% confidence
+     * interval is at most halfWidth on each side of the mean, or maxTrials
+     * trials have run
+     * 
+     * Batch sizes only depend on the results so far, so the trials used and the
+     * results are the same for a given seed no matter how many threads run
+     * them.
+     * 
+     * @param n
+     * @param halfWidth
+     *            target half-width of the 95% confidence interval
+     * @param maxTrials
+     * @param seed
+     *            master seed of the campaign
+     * @param threads
+     * @param mode
+     *            how each trial picks the sites to open
+     * 
+     * @return statistics of the trials that were run
+     */
+    public static PercolationStats untilHalfWidth(int n, double halfWidth, int maxTrials, long seed, int threads,
+            TrialMode mode) {
+
+        if (!(halfWidth > 0)) {
+            throw new IllegalArgumentException("halfWidth must be greater than 0");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be greater than 0");
+        }
+        validate(n, maxTrials, mode);
+
+        StatsAccumulator stats = newAccumulator();
+        long trialNanos = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            int batch = Math.min(FIRST_BATCH, maxTrials);
+            while (batch > 0) {
+                int done = (int) stats.count();
+                Campaign campaign = runCampaign(new Campaign(n, done, batch, seed, mode), executor, threads);
+                stats.merge(campaign.total);
+                trialNanos += campaign.trialNanos;
+                done += batch;
+
+                if (done >= 2 && halfWidth(stats) <= halfWidth) {
+                    break;
                 }
+
+                // Aim for the trial count the current estimate says is enough,
+                // but never more than double what has run so far
+                double z = CONFIDENCE_95 * stats.stddev() / halfWidth;
+                long needed = (long) Math.ceil(z * z) - done;
+                batch = (int) Math.min(Math.max(needed, FIRST_BATCH), Math.min(done, maxTrials - done));
             }
-            trials[i] = ((double) openSites) / ((double) n * n);
+        } finally {
+            executor.shutdownNow();
+        }
+        return new PercolationStats(stats, trialNanos);
+    }
 
+    /**
+     * Number of trials that were run
+     */
+    public int numberOfTrials() {
+
+        return (int) stats.count();
+    }
+
+    /**
+     * perform trials for several grid sizes at once, sharing one executor
+     * 
+     * The workers of every size are submitted before waiting on any of them,
+     * largest grids first, so the small sizes fill in the gaps at the end
+     * instead of running after a long straggler. Each size uses the master seed
+     * as is, so its results match a run of that size alone.
+     * 
+     * @param sizes
+     * @param numOfTrials
+     *            number of trials for each size
+     * @param seed
+     *            master seed of the campaign
+     * @param executor
+     * @param workers
+     *            number of worker tasks to submit for each size
+     * @param mode
+     *            how each trial picks the sites to open
+     * 
+     * @return statistics for each size, in the order given
+     */
+    static PercolationStats[] sweep(final int[] sizes, int[] numOfTrials, long seed, ExecutorService executor,
+            int workers, TrialMode mode) {
+
+        if (executor == null) {
+            throw new NullPointerException();
+        }
+        if (sizes.length != numOfTrials.length) {
+            throw new IllegalArgumentException("Sizes and trials must have the same length");
+        }
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers must be greater than 0");
+        }
+        for (int i = 0; i < sizes.length; i++) {
+            validate(sizes[i], numOfTrials[i], mode);
+        }
+
+        Integer[] order = new Integer[sizes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer a, Integer b) {
+
+                return Integer.compare(sizes[b], sizes[a]);
+            }
+        });
+
+        Campaign[] campaigns = new Campaign[sizes.length];
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int i : order) {
+            campaigns[i] = new Campaign(sizes[i], 0, numOfTrials[i], seed, mode);
+            startCampaign(campaigns[i], executor, workers, futures);
+        }
+        await(futures);
+
+        PercolationStats[] results = new PercolationStats[sizes.length];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new PercolationStats(campaigns[i]);
+        }
+        return results;
+    }
+
+    /**
+     * Runs one trial of a campaign again and records the sites it opens, in
+     * order, as a binary replay. Since every trial has its own seed, this
+     * reproduces exactly the trial that ran as part of the campaign.
+     * 
+     * @param n
+     * @param seed
+     *            master seed of the campaign
+     * @param trial
+     *            index of the trial, from 0
+     * @param mode
+     *            how the campaign picked the sites to open
+     * @param path
+     *            replay file to write
+     * 
+     * @return fraction of sites open when the system first percolates
+     */
+    public static double recordTrial(int n, long seed, int trial, TrialMode mode, File path) throws IOException {
+
+        validate(n, 1, mode);
+        if (trial < 0) {
+            throw new IllegalArgumentException("trial must not be negative");
+        }
+
+        TrialRandom random = new TrialRandom();
+        random.reseed(TrialRandom.trialSeed(seed, trial));
+
+        ReplayWriter recorder = new ReplayWriter(n, path);
+        try {
+            if (mode == TrialMode.REJECTION) {
+                return runTrial(new Percolation(n), n, random, recorder);
+            }
+
+            if (mode == TrialMode.SHUFFLED) {
+                ShuffleOrder order = new ShuffleOrder(n * n, 1);
+                double threshold = runShuffledTrial(new Percolation(n), order, random);
+                int openSites = (int) Math.round(threshold * n * n);
+                for (int i = 0; i < openSites; i++) {
+                    recorder.openSite(order.get(i));
+                }
+                return threshold;
+            }
+
+            // Flood fill leaves its opening order in an array
+            int[] sites = new int[n * n];
+            FloodFillPercolation floodFill = new FloodFillPercolation(n);
+            double threshold = floodFill.threshold(random);
+            floodFill.openOrder(sites);
+
+            int openSites = (int) Math.round(threshold * sites.length);
+            for (int i = 0; i < openSites; i++) {
+                recorder.openSite(sites[i]);
+            }
+            return threshold;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            recorder.close();
         }
     }
 
@@ -48,7 +403,7 @@ public class PercolationStats {
      */
     public double mean() {
 
-        return StdStats.mean(trials);
+        return mean;
     }
 
     /**
@@ -56,7 +411,7 @@ public class PercolationStats {
      */
     public double stddev() {
 
-        return StdStats.stddev(trials);
+        return stddev;
     }
 
     /**
@@ -64,19 +419,717 @@ public class PercolationStats {
      */
     public double confidenceLo() {
 
-        return mean() - ((1.96 * stddev()) / Math.sqrt(trials.length));
+        return confidenceLo;
     }
 
     /**
      * high endpoint of 95% confidence interval
      */
     public double confidenceHi() {
-        return mean() + ((1.96 * stddev()) / Math.sqrt(trials.length));
+        return confidenceHi;
+    }
+
+    /**
+     * Average time spent in each trial, in seconds, summed over every worker
+     */
+    public double secondsPerTrial() {
+
+        return trialNanos / 1e9 / stats.count();
+    }
+
+    /**
+     * Approximate quantile of percolation threshold, accurate to about
+     * 1/{@value #QUANTILE_BINS}
+     * 
+     * @param p
+     *            between 0 and 1
+     */
+    public double quantile(double p) {
+
+        return stats.quantile(p);
+    }
+
+    /**
+     * Runs every trial on a new pool of threads
+     * 
+     * @param n
+     * @param numOfTrials
+     * @param seed
+     * @param threads
+     * @param mode
+     * 
+     * @return the finished campaign
+     */
+    private static Campaign runTrials(int n, int numOfTrials, long seed, int threads, TrialMode mode) {
+
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be greater than 0");
+        }
+        validate(n, numOfTrials, mode);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            return runTrials(n, numOfTrials, seed, executor, threads, mode);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs every trial on a lattice on a new pool of threads
+     * 
+     * @param lattice
+     * @param numOfTrials
+     * @param seed
+     * @param threads
+     * @param mode
+     * 
+     * @return the finished campaign
+     */
+    private static Campaign runTrials(Lattice lattice, int numOfTrials, long seed, int threads, TrialMode mode) {
+
+        if (lattice instanceof Lattice.Square) {
+            return runTrials(((Lattice.Square) lattice).n, numOfTrials, seed, threads, mode);
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be greater than 0");
+        }
+        validate(lattice.size(), numOfTrials, mode);
+        if (mode == TrialMode.FLOOD_FILL) {
+            throw new IllegalArgumentException("FLOOD_FILL only supports square lattices");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            return runCampaign(new Campaign(lattice, 0, numOfTrials, seed, mode), executor, threads);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs every trial on the executor and waits for them to finish
+     * 
+     * @param n
+     * @param numOfTrials
+     * @param seed
+     * @param executor
+     * @param workers
+     * @param mode
+     * 
+     * @return the finished campaign
+     */
+    private static Campaign runTrials(int n, int numOfTrials, long seed, ExecutorService executor,
+            int workers, TrialMode mode) {
+
+        if (executor == null) {
+            throw new NullPointerException();
+        }
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers must be greater than 0");
+        }
+        validate(n, numOfTrials, mode);
+
+        return runCampaign(new Campaign(n, 0, numOfTrials, seed, mode), executor, workers);
+    }
+
+    /**
+     * Runs the trials of a campaign on the executor and waits for them to
+     * finish
+     * 
+     * @param campaign
+     * @param executor
+     * @param workers
+     * 
+     * @return the finished campaign
+     */
+    private static Campaign runCampaign(Campaign campaign, ExecutorService executor, int workers) {
+
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        startCampaign(campaign, executor, workers, futures);
+        await(futures);
+
+        return campaign;
+    }
+
+    /**
+     * Submits the workers of a campaign without waiting for them
+     * 
+     * @param campaign
+     * @param executor
+     * @param workers
+     * @param futures
+     *            receives a future for each worker
+     */
+    private static void startCampaign(Campaign campaign, ExecutorService executor, int workers,
+            List<Future<Void>> futures) {
+
+        campaign.setWorkers(workers);
+        for (int i = 0; i < Math.min(workers, campaign.chunks()); i++) {
+            futures.add(executor.submit(new Worker(campaign)));
+        }
+    }
+
+    /**
+     * Waits for every worker, cancelling the rest if one fails
+     * 
+     * @param futures
+     */
+    private static void await(List<Future<Void>> futures) {
+
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running trials", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Trial failed", e.getCause());
+        } finally {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Runs a single trial on a cleared n-by-n grid
+     * 
+     * @param p
+     * @param n
+     * @param random
+     * @param recorder
+     *            receives every open, or null
+     * 
+     * @return fraction of sites open when the system first percolates
+     */
+    private static double runTrial(Percolation p, int n, TrialRandom random, ReplayWriter recorder) {
+
+        p.reset();
+        int openSites = 0;
+        while (!p.percolates()) {
+            int rndRow = random.nextInt(n) + 1;
+            int rndCol = random.nextInt(n) + 1;
+            if (!p.isOpen(rndRow, rndCol)) {
+                p.open(rndRow, rndCol);
+                openSites++;
+                if (recorder != null) {
+                    try {
+                        recorder.open(rndRow, rndCol);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+        }
+        return ((double) openSites) / ((double) n * n);
+    }
+
+    /**
+     * Runs a single trial on a cleared n-by-n grid, opening sites in the order
+     * of a lazily shuffled permutation
+     * 
+     * The permutation starts from the identity on every trial so a trial's
+     * result only depends on its own seed. Only the prefix that gets opened is
+     * shuffled, and only the positions it touches are written.
+     * 
+     * @param p
+     * @param order
+     *            order of the sites 1 to n * n, restarted here
+     * @param random
+     * 
+     * @return fraction of sites open when the system first percolates
+     */
+    private static double runShuffledTrial(Percolation p, ShuffleOrder order, TrialRandom random) {
+
+        p.reset();
+        order.restart();
+        int size = order.size();
+
+        int openSites = 0;
+        while (!p.percolates()) {
+            p.openSite(order.draw(openSites, random));
+            openSites++;
+        }
+        return ((double) openSites) / ((double) size);
+    }
+
+    /**
+     * Runs a single trial on a cleared lattice
+     * 
+     * @param p
+     * @param order
+     *            order of the sites 0 to size - 1, restarted here; only used in
+     *            SHUFFLED mode
+     * @param random
+     * @param mode
+     *            REJECTION or SHUFFLED
+     * 
+     * @return fraction of sites open when the system first percolates
+     */
+    private static double runLatticeTrial(LatticePercolation p, ShuffleOrder order, TrialRandom random,
+            TrialMode mode) {
+
+        p.reset();
+        int size = p.lattice().size();
+        int openSites = 0;
+        if (mode == TrialMode.SHUFFLED) {
+            order.restart();
+            while (!p.percolates()) {
+                p.openSite(order.draw(openSites, random));
+                openSites++;
+            }
+        } else {
+            while (!p.percolates()) {
+                int site = random.nextInt(size);
+                if (!p.isOpen(site)) {
+                    p.openSite(site);
+                    openSites++;
+                }
+            }
+        }
+        return ((double) openSites) / ((double) size);
+    }
+
+    /**
+     * Runs a single bond trial on a cleared grid, opening bonds in the order of
+     * a lazily shuffled permutation
+     * 
+     * @param p
+     * @param order
+     *            order of the bonds 0 to numberOfBonds - 1, restarted here
+     * @param random
+     * 
+     * @return fraction of bonds open when the system first percolates
+     */
+    private static double runBondTrial(BondPercolation p, ShuffleOrder order, TrialRandom random) {
+
+        p.reset();
+        order.restart();
+        int size = order.size();
+
+        int openBonds = 0;
+        while (!p.percolates()) {
+            p.openBondUnchecked(order.draw(openBonds, random));
+            openBonds++;
+        }
+        return ((double) openBonds) / ((double) size);
+    }
+
+    private static void validate(int n, int numOfTrials, TrialMode mode) {
+
+        if (mode == null) {
+            throw new NullPointerException();
+        }
+        if (n <= 0 || numOfTrials <= 0) {
+            throw new IllegalArgumentException(" n and number of trials must be greater than 0");
+        }
+    }
+
+    private static double halfWidth(StatsAccumulator stats) {
+
+        return (CONFIDENCE_95 * stats.stddev()) / Math.sqrt(stats.count());
+    }
+
+    private static StatsAccumulator newAccumulator() {
+
+        return new StatsAccumulator(QUANTILE_BINS, 0, 1);
+    }
+
+    /**
+     * Fisher-Yates shuffle of the items first to first + size - 1 that can be
+     * restarted from the identity without rewriting it. A position holds its
+     * own item unless it was written since the last restart, which its stamp
+     * records, so a restart costs O(1) and a trial only touches the positions
+     * it draws. Stamps are single bytes to keep the cache footprint close to
+     * that of a plain array, so they are cleared every 255 restarts, which
+     * amortizes to a small fraction of a refill per trial.
+     * 
+     * @author Eric
+     *
+     */
+    private static class ShuffleOrder {
+
+        private final int first;
+        private final int size;
+
+        private final int[] items;
+        private final byte[] stamps;
+        private byte generation;
+
+        /**
+         * @param size
+         *            number of items
+         * @param first
+         *            first item
+         */
+        public ShuffleOrder(int size, int first) {
+
+            this.first = first;
+            this.size = size;
+            items = new int[size];
+            stamps = new byte[size];
+        }
+
+        public int size() {
+
+            return size;
+        }
+
+        /**
+         * Puts every item back in its own position
+         */
+        public void restart() {
+
+            generation++;
+            if (generation == 0) {
+                // Stamps from 256 restarts ago would look current again
+                Arrays.fill(stamps, (byte) 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * Returns the item at a position
+         * 
+         * @param position
+         */
+        public int get(int position) {
+
+            return stamps[position] == generation ? items[position] : first + position;
+        }
+
+        /**
+         * Swaps a random item from position to the end into position and
+         * returns it
+         * 
+         * @param position
+         *            number of items drawn since the restart
+         * @param random
+         */
+        public int draw(int position, TrialRandom random) {
+
+            int swap = position + random.nextInt(size - position);
+            int item = get(swap);
+            set(swap, get(position));
+            set(position, item);
+            return item;
+        }
+
+        private void set(int position, int item) {
+
+            items[position] = item;
+            stamps[position] = generation;
+        }
+    }
+
+    /**
+     * Shared state of one run of trials: which chunk is next and the merged
+     * statistics of every chunk finished so far
+     * 
+     * A chunk can only be claimed once every chunk a window before it has been
+     * added, so the chunks that finish out of order fit in one buffer per
+     * chunk of the window.
+     * 
+     * @author Eric
+     *
+     */
+    private static class Campaign {
+
+        private final int n;
+        private final Lattice lattice;
+        private final boolean bond;
+        private final long seed;
+        private final TrialMode mode;
+        private final int firstTrial;
+        private final int numOfTrials;
+        private final int chunkSize;
+        private final int chunks;
+        private int nextChunk;
+        private boolean aborted;
+
+        // Thresholds of the chunks that finished ahead of an earlier one,
+        // waiting to be added, in slot chunk % window, and the number of
+        // trials in each (0 for an empty slot)
+        private double[][] finished;
+        private int[] finishedCounts;
+        private final StatsAccumulator total = newAccumulator();
+        private long trialNanos;
+        private int nextToMerge;
+
+        /**
+         * Prepares trials firstTrial to firstTrial + numOfTrials - 1
+         * 
+         * @param n
+         * @param firstTrial
+         * @param numOfTrials
+         * @param seed
+         * @param mode
+         */
+        public Campaign(int n, int firstTrial, int numOfTrials, long seed, TrialMode mode) {
+
+            this(n, null, false, firstTrial, numOfTrials, seed, mode);
+        }
+
+        /**
+         * Prepares trials firstTrial to firstTrial + numOfTrials - 1 on a
+         * lattice other than a square
+         * 
+         * @param lattice
+         * @param firstTrial
+         * @param numOfTrials
+         * @param seed
+         * @param mode
+         */
+        public Campaign(Lattice lattice, int firstTrial, int numOfTrials, long seed, TrialMode mode) {
+
+            this(0, lattice, false, firstTrial, numOfTrials, seed, mode);
+        }
+
+        private Campaign(int n, Lattice lattice, boolean bond, int firstTrial, int numOfTrials, long seed,
+                TrialMode mode) {
+
+            this.n = n;
+            this.lattice = lattice;
+            this.bond = bond;
+            this.seed = seed;
+            this.mode = mode;
+            this.firstTrial = firstTrial;
+            this.numOfTrials = numOfTrials;
+            long sites = lattice != null ? lattice.size() : (long) n * n;
+            int minChunk = (int) Math.min(MIN_CHUNK, (MIN_CHUNK_SITES + sites - 1) / sites);
+            chunkSize = (int) Math.max((numOfTrials + (long) MAX_CHUNKS - 1) / MAX_CHUNKS, minChunk);
+            chunks = (int) ((numOfTrials + (long) chunkSize - 1) / chunkSize);
+            setWorkers(1);
+        }
+
+        public int chunks() {
+
+            return chunks;
+        }
+
+        /**
+         * Sizes the window for the number of workers about to run, leaving
+         * each of them room for a chunk past the ones the others hold
+         * 
+         * @param workers
+         */
+        public synchronized void setWorkers(int workers) {
+
+            int window = (int) Math.min(chunks, 2L * workers);
+            finished = new double[window][];
+            finishedCounts = new int[window];
+        }
+
+        /**
+         * Claims the next chunk, waiting while it is a full window ahead of the
+         * next chunk to add
+         * 
+         * @return the chunk, or -1 if none are left or a worker failed
+         */
+        public synchronized int claim() throws InterruptedException {
+
+            while (!aborted && nextChunk < chunks && nextChunk >= nextToMerge + finished.length) {
+                wait();
+            }
+            if (aborted || nextChunk >= chunks) {
+                return -1;
+            }
+            return nextChunk++;
+        }
+
+        /**
+         * Stops handing out chunks after a worker failed, releasing the workers
+         * waiting on the chunk it will never finish
+         */
+        public synchronized void abort() {
+
+            aborted = true;
+            notifyAll();
+        }
+
+        /**
+         * Records a finished chunk and adds every chunk that is now next in
+         * order. A chunk that finished early is copied into its slot of the
+         * window, since the worker reuses its buffer.
+         * 
+         * @param chunk
+         * @param thresholds
+         *            buffer holding the chunk's thresholds in trial order
+         * @param count
+         *            number of trials in the chunk
+         * @param nanos
+         *            time spent running the chunk
+         */
+        public synchronized void finish(int chunk, double[] thresholds, int count, long nanos) {
+
+            trialNanos += nanos;
+            if (chunk != nextToMerge) {
+                int slot = chunk % finished.length;
+                if (finished[slot] == null) {
+                    finished[slot] = new double[chunkSize];
+                }
+                System.arraycopy(thresholds, 0, finished[slot], 0, count);
+                finishedCounts[slot] = count;
+                return;
+            }
+
+            addAll(thresholds, count);
+            nextToMerge++;
+            int slot = nextToMerge % finished.length;
+            while (finishedCounts[slot] != 0) {
+                addAll(finished[slot], finishedCounts[slot]);
+                finishedCounts[slot] = 0;
+                nextToMerge++;
+                slot = nextToMerge % finished.length;
+            }
+            notifyAll();
+        }
+
+        private void addAll(double[] thresholds, int count) {
+
+            for (int i = 0; i < count; i++) {
+                total.add(thresholds[i]);
+            }
+        }
+    }
+
+    /**
+     * Claims chunks of trials until none are left. Each worker owns its random
+     * generator and a single grid that is reset between trials, so the trial
+     * loop does not allocate.
+     * 
+     * @author Eric
+     *
+     */
+    private static class Worker implements Callable<Void> {
+
+        private final Campaign campaign;
+        private final TrialRandom random = new TrialRandom();
+
+        public Worker(Campaign campaign) {
+
+            this.campaign = campaign;
+        }
+
+        @Override
+        public Void call() throws InterruptedException {
+
+            boolean done = false;
+            try {
+                runChunks();
+                done = true;
+            } finally {
+                if (!done) {
+                    campaign.abort();
+                }
+            }
+            return null;
+        }
+
+        private void runChunks() throws InterruptedException {
+
+            int n = campaign.n;
+            TrialMode mode = campaign.mode;
+
+            Percolation percolation = null;
+            LatticePercolation latticePercolation = null;
+            ShuffleOrder order = null;
+            FloodFillPercolation floodFill = null;
+            BondPercolation bondPercolation = null;
+            if (campaign.bond) {
+                bondPercolation = new BondPercolation(n);
+                order = new ShuffleOrder(bondPercolation.numberOfBonds(), 0);
+            } else if (campaign.lattice != null) {
+                latticePercolation = new LatticePercolation(campaign.lattice);
+                if (mode == TrialMode.SHUFFLED) {
+                    order = new ShuffleOrder(campaign.lattice.size(), 0);
+                }
+            } else if (mode == TrialMode.FLOOD_FILL) {
+                floodFill = new FloodFillPercolation(n);
+            } else {
+                percolation = new Percolation(n);
+                if (mode == TrialMode.SHUFFLED) {
+                    order = new ShuffleOrder(n * n, 1);
+                }
+            }
+
+            double[] thresholds = new double[campaign.chunkSize];
+            int chunk;
+            while ((chunk = campaign.claim()) >= 0) {
+                long start = System.nanoTime();
+                int first = chunk * campaign.chunkSize;
+                int last = (int) Math.min(campaign.numOfTrials, (long) first + campaign.chunkSize);
+                for (int trial = first; trial < last; trial++) {
+                    int i = trial - first;
+                    random.reseed(TrialRandom.trialSeed(campaign.seed, campaign.firstTrial + trial));
+                    if (bondPercolation != null) {
+                        thresholds[i] = runBondTrial(bondPercolation, order, random);
+                        continue;
+                    }
+                    if (latticePercolation != null) {
+                        thresholds[i] = runLatticeTrial(latticePercolation, order, random, mode);
+                        continue;
+                    }
+                    switch (mode) {
+                    case FLOOD_FILL:
+                        thresholds[i] = floodFill.threshold(random);
+                        break;
+                    case SHUFFLED:
+                        thresholds[i] = runShuffledTrial(percolation, order, random);
+                        break;
+                    default:
+                        thresholds[i] = runTrial(percolation, n, random, null);
+                        break;
+                    }
+                }
+                campaign.finish(chunk, thresholds, last - first, System.nanoTime() - start);
+            }
+        }
     }
 
     public static void main(String[] args) {
 
-        PercolationStats ps = new PercolationStats(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+        if (args.length >= 1 && args[0].equals("-halfwidth")) {
+            PercolationStats ps = untilHalfWidth(Integer.parseInt(args[1]), Double.parseDouble(args[2]),
+                    Integer.parseInt(args[3]), Long.parseLong(args[4]), Integer.parseInt(args[5]),
+                    TrialMode.valueOf(args[6]));
+            System.out.println("trials = " + ps.numberOfTrials());
+            System.out.println("mean = " + ps.mean());
+            System.out.println("95% confidence interval = " + ps.confidenceLo() + ", " + ps.confidenceHi());
+            return;
+        }
+
+        if (args.length >= 1 && args[0].equals("-cubic")) {
+            PercolationStats ps = new PercolationStats(Lattice.cubic(Integer.parseInt(args[1])),
+                    Integer.parseInt(args[2]), Long.parseLong(args[3]), Integer.parseInt(args[4]),
+                    TrialMode.valueOf(args[5]));
+            System.out.println("mean = " + ps.mean());
+            System.out.println("stddev = " + ps.stddev());
+            System.out.println("95% confidence interval = " + ps.confidenceLo() + ", " + ps.confidenceHi());
+            return;
+        }
+
+        if (args.length >= 1 && args[0].equals("-bond")) {
+            PercolationStats ps = bonds(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                    Long.parseLong(args[3]), Integer.parseInt(args[4]));
+            System.out.println("mean = " + ps.mean());
+            System.out.println("stddev = " + ps.stddev());
+            System.out.println("95% confidence interval = " + ps.confidenceLo() + ", " + ps.confidenceHi());
+            return;
+        }
+
+        PercolationStats ps;
+        if (args.length >= 5) {
+            ps = new PercolationStats(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                    Long.parseLong(args[2]), Integer.parseInt(args[3]), TrialMode.valueOf(args[4]));
+        } else if (args.length >= 4) {
+            ps = new PercolationStats(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                    Long.parseLong(args[2]), Integer.parseInt(args[3]));
+        } else {
+            ps = new PercolationStats(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+        }
         System.out.println("mean = " + ps.mean());
         System.out.println("stddev = " + ps.stddev());
         System.out.println("95% confidence interval = " + ps.confidenceLo() + ", " + ps.confidenceHi());
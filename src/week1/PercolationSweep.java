@@ -0,0 +1,92 @@
+package week1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * Estimates the percolation threshold for several grid sizes in one run, so
+ * the JVM only starts and warms up once. All trials of all sizes share one
+ * work-stealing pool, and one row of results is printed per size, as CSV or as
+ * JSON lines.
+ * 
+ * Execution: java week1.PercolationSweep [-json] [-threads k] [-seed s]
+ * [-mode REJECTION|SHUFFLED|FLOOD_FILL] n:trials ...
+ * 
+ * @author Eric
+ *
+ */
+public class PercolationSweep {
+
+    public static void main(String[] args) {
+
+        boolean json = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = StdRandom.getSeed();
+        TrialMode mode = TrialMode.SHUFFLED;
+        List<int[]> runs = new ArrayList<int[]>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-json")) {
+                json = true;
+            } else if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-seed")) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-mode")) {
+                mode = TrialMode.valueOf(args[++i]);
+            } else {
+                String[] run = args[i].split(":");
+                if (run.length != 2) {
+                    throw new IllegalArgumentException("Expected n:trials but got " + args[i]);
+                }
+                runs.add(new int[] { Integer.parseInt(run[0]), Integer.parseInt(run[1]) });
+            }
+        }
+
+        int[] sizes = new int[runs.size()];
+        int[] trials = new int[runs.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = runs.get(i)[0];
+            trials[i] = runs.get(i)[1];
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        PercolationStats[] results;
+        try {
+            results = PercolationStats.sweep(sizes, trials, seed, pool, threads, mode);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (!json) {
+            StdOut.println("n,trials,mean,stddev,confidenceLo,confidenceHi,secondsPerTrial");
+        }
+        for (int i = 0; i < results.length; i++) {
+            PercolationStats ps = results[i];
+            if (json) {
+                StdOut.printf("{\"n\": %d, \"trials\": %d, \"mean\": %s, \"stddev\": %s, \"confidenceLo\": %s, "
+                        + "\"confidenceHi\": %s, \"secondsPerTrial\": %s}%n", sizes[i], ps.numberOfTrials(),
+                        json(ps.mean()), json(ps.stddev()), json(ps.confidenceLo()), json(ps.confidenceHi()),
+                        json(ps.secondsPerTrial()));
+            } else {
+                StdOut.printf("%d,%d,%s,%s,%s,%s,%s%n", sizes[i], ps.numberOfTrials(), ps.mean(), ps.stddev(),
+                        ps.confidenceLo(), ps.confidenceHi(), ps.secondsPerTrial());
+            }
+        }
+    }
+
+    /**
+     * Formats a number for JSON, which has no NaN or infinity: a stddev over a
+     * single trial, for one, comes out as null
+     * 
+     * @param x
+     */
+    private static String json(double x) {
+
+        return Double.isNaN(x) || Double.isInfinite(x) ? "null" : Double.toString(x);
+    }
+}
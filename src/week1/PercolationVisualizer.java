@@ -1,8 +1,9 @@
 package week1;
 /******************************************************************************
  *  Compilation:  javac PercolationVisualizer.java
- *  Execution:    java PercolationVisualizer input.txt
- *  Dependencies: Percolation.java
+ *  Execution:    java PercolationVisualizer input.txt [opens per frame]
+ *                java PercolationVisualizer replay.bin [opens per frame]
+ *  Dependencies: Percolation.java PercolationImage.java ReplayReader.java
  *
  *  This program takes the name of a file as a command-line argument.
  *  From that file, it
@@ -11,21 +12,46 @@ package week1;
  *    - Creates an n-by-n grid of sites (intially all blocked)
  *    - Reads in a sequence of sites (row i, column j) to open.
  *
+ *  A file ending in .bin is read as a binary replay from ReplayWriter
+ *  instead, a block of opens at a time, so replays far larger than the
+ *  heap play back without parsing.
+ *
  *  After each site is opened, it draws full sites in light blue,
  *  open sites (that aren't full) in white, and blocked sites in black,
  *  with with site (1, 1) in the upper left-hand corner.
  *
+ *  The replay keeps an off-screen image and only repaints the sites that
+ *  changed, showing a frame every few opens so that large inputs play back
+ *  in about REPLAY_SECONDS unless the opens per frame are given.
+ *
  ******************************************************************************/
 
+import java.awt.Dimension;
 import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+
+import javax.swing.JComponent;
+import javax.swing.JFrame;
 
 import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdDraw;
 
 public class PercolationVisualizer {
 
-    // delay in miliseconds (controls animation speed)
-    private static final int DELAY = 100;
+    // time between frames in miliseconds (controls animation speed)
+    private static final int FRAME_DELAY = 16;
+
+    // default length of a replay in seconds
+    private static final int REPLAY_SECONDS = 10;
+
+    // largest side of the window in pixels
+    private static final int MAX_SIDE = 800;
+
+    // most opens read from a binary replay at a time
+    private static final int BLOCK = 1 << 16;
 
     // draw n-by-n percolation system
     public static void draw(Percolation perc, int n) {
@@ -63,25 +89,107 @@ public class PercolationVisualizer {
 
     }
 
-    public static void main(String[] args) {
-        In in = new In("percolation-test/input50.txt");      // input file
-        int n = in.readInt();         // n-by-n percolation system
-
-        // turn on animation mode
-        StdDraw.enableDoubleBuffering();
-
-        // repeatedly read in sites to open and draw resulting system
-        Percolation perc = new Percolation(n);
-        draw(perc, n);
-        StdDraw.show();
-        StdDraw.pause(DELAY);
-        while (!in.isEmpty()) {
-            int i = in.readInt();
-            int j = in.readInt();
-            perc.open(i, j);
-            draw(perc, n);
-            StdDraw.show();
-            StdDraw.pause(DELAY);
+    public static void main(String[] args) throws IOException {
+        String file = args.length > 0 ? args[0] : "percolation-test/input50.txt";
+        ReplayReader replay = null;   // binary replay, or null for text
+        int[] sites;                  // text: row, col pairs; binary: a block of 1D sites
+        int n;                        // n-by-n percolation system
+        long opens;
+        if (file.endsWith(".bin")) {
+            replay = new ReplayReader(new File(file));
+            n = replay.n();
+            opens = replay.size();
+            sites = new int[(int) Math.min(BLOCK, opens)];
+        }
+        else {
+            In in = new In(file);
+            n = in.readInt();
+            sites = in.readAllInts();
+            opens = sites.length / 2;
+        }
+
+        int opensPerFrame = (int) Math.min(Integer.MAX_VALUE,
+                Math.max(1, opens * FRAME_DELAY / (REPLAY_SECONDS * 1000)));
+        if (args.length > 1) opensPerFrame = Integer.parseInt(args[1]);
+
+        // one pixel or more per site, shrunk to fit the window if needed
+        final PercolationImage picture = new PercolationImage(n, Math.max(1, MAX_SIDE / n));
+        final int side = picture.image().getWidth();
+        final double scale = Math.min(1.0, (double) MAX_SIDE / side);
+        final int shown = (int) Math.ceil(side * scale);
+
+        JComponent canvas = new JComponent() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                synchronized (picture.image()) {
+                    g.drawImage(picture.image(), 0, 0, shown, shown, null);
+                }
+            }
+
+            @Override
+            public Dimension getPreferredSize() {
+                return new Dimension(shown, shown);
+            }
+        };
+
+        JFrame frame = new JFrame(file);
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setResizable(false);
+        frame.setContentPane(canvas);
+        frame.pack();
+        frame.setVisible(true);
+
+        // repeatedly open a batch of sites and repaint what changed
+        Percolation perc = new Percolation(n, true);
+        long nextFrame = System.currentTimeMillis();
+        try {
+            for (long k = 0; k < opens; ) {
+                long end = Math.min(opens, k + opensPerFrame);
+                if (replay == null) {
+                    for (; k < end; k++) {
+                        int i = sites[(int) (2 * k)];
+                        int j = sites[(int) (2 * k + 1)];
+                        perc.open(i, j);
+                        picture.siteOpened(i, j);
+                    }
+                }
+                else {
+                    while (k < end) {
+                        int read = replay.read(k, sites, (int) Math.min(sites.length, end - k));
+                        for (int b = 0; b < read; b++) {
+                            int i = (sites[b] - 1) / n + 1;
+                            int j = (sites[b] - 1) % n + 1;
+                            perc.open(i, j);
+                            picture.siteOpened(i, j);
+                        }
+                        k += read;
+                    }
+                }
+                picture.update(perc);
+
+                Rectangle dirty = picture.takeDirty();
+                if (dirty != null) {
+                    canvas.repaint((int) (dirty.x * scale), (int) (dirty.y * scale),
+                            (int) Math.ceil(dirty.width * scale) + 1, (int) Math.ceil(dirty.height * scale) + 1);
+                }
+                frame.setTitle(perc.numberOfOpenSites() + " open sites, "
+                        + (perc.percolates() ? "percolates" : "does not percolate"));
+
+                nextFrame += FRAME_DELAY;
+                long wait = nextFrame - System.currentTimeMillis();
+                if (wait > 0) {
+                    try {
+                        Thread.sleep(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        } finally {
+            if (replay != null) replay.close();
         }
     }
 }
@@ -0,0 +1,161 @@
+package week1;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a binary replay written by {@link ReplayWriter} through a memory
+ * mapping, so opens come straight from the page cache without parsing.
+ * 
+ * @author Eric
+ *
+ */
+public class ReplayReader implements Closeable {
+
+    // Opens per mapped segment, kept well under the 2 GB limit of a mapping
+    private static final int SEGMENT_SHIFT = 28;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final RandomAccessFile file;
+    private final IntBuffer[] segments;
+    private final int n;
+    private final long count;
+
+    /**
+     * Opens a replay file
+     * 
+     * @param path
+     */
+    public ReplayReader(File path) throws IOException {
+
+        file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() < ReplayWriter.HEADER_BYTES) {
+                throw new IOException("Truncated percolation replay: " + path);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, ReplayWriter.HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != ReplayWriter.MAGIC) {
+                throw new IOException("Not a percolation replay: " + path);
+            }
+            n = header.getInt(4);
+            count = header.getLong(8);
+            if (n <= 0) {
+                throw new IOException("Bad grid size " + n + " in percolation replay: " + path);
+            }
+            // Compare counts rather than byte lengths, which a corrupt count
+            // could overflow; a grid cannot have more opens than sites
+            if (count < 0 || count > (long) n * n) {
+                throw new IOException("Bad open count " + count + " in percolation replay: " + path);
+            }
+            if (count > (channel.size() - ReplayWriter.HEADER_BYTES) / Integer.BYTES) {
+                throw new IOException("Truncated percolation replay: " + path);
+            }
+
+            segments = new IntBuffer[(int) ((count + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long first = (long) i << SEGMENT_SHIFT;
+                long length = Math.min(count - first, SEGMENT_MASK + 1);
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                        ReplayWriter.HEADER_BYTES + first * Integer.BYTES, length * Integer.BYTES);
+                segments[i] = segment.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Size of the grid
+     */
+    public int n() {
+
+        return n;
+    }
+
+    /**
+     * Number of opens in the replay
+     */
+    public long size() {
+
+        return count;
+    }
+
+    /**
+     * Gets the i-th open as a 1D site index, (row - 1) * n + col
+     * 
+     * @param i
+     */
+    public int site(long i) {
+
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("Open out of bounds");
+        }
+        return segments[(int) (i >>> SEGMENT_SHIFT)].get((int) (i & SEGMENT_MASK));
+    }
+
+    /**
+     * Copies opens first to first + length - 1 into sites, in bulk
+     * 
+     * @param first
+     * @param sites
+     * @param length
+     * 
+     * @return number of opens copied, less than length at the end of the replay
+     */
+    public int read(long first, int[] sites, int length) {
+
+        if (first < 0 || length < 0 || length > sites.length) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        int copied = 0;
+        while (copied < length && first + copied < count) {
+            long i = first + copied;
+            IntBuffer segment = segments[(int) (i >>> SEGMENT_SHIFT)];
+            int offset = (int) (i & SEGMENT_MASK);
+            int chunk = Math.min(length - copied, segment.limit() - offset);
+            IntBuffer view = segment.duplicate();
+            view.position(offset);
+            view.get(sites, copied, chunk);
+            copied += chunk;
+        }
+        return copied;
+    }
+
+    /**
+     * Replays every open onto a grid, in batches
+     * 
+     * @param perc
+     *            an n-by-n system
+     */
+    public void replay(Percolation perc) {
+
+        int[] batch = new int[(int) Math.min(count, 1 << 16)];
+        for (long i = 0; i < count; ) {
+            int read = read(i, batch, (int) Math.min(batch.length, count - i));
+            if (read == batch.length) {
+                perc.openAll(batch);
+            } else {
+                int[] last = new int[read];
+                System.arraycopy(batch, 0, last, 0, read);
+                perc.openAll(last);
+            }
+            i += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        file.close();
+    }
+}
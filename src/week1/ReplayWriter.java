@@ -0,0 +1,132 @@
+package week1;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import edu.princeton.cs.algs4.In;
+
+/**
+ * Writes a sequence of opens in the binary replay format read by
+ * {@link ReplayReader}.
+ * 
+ * The format is little-endian: the magic number {@value #MAGIC}, the grid size
+ * n as an int, the number of opens as a long, then one int per open holding
+ * the 1D site index (row - 1) * n + col. Fixed-width indices keep the reader
+ * a plain memory-mapped array; random site indices would not get much smaller
+ * as varints anyway.
+ * 
+ * Execution: java week1.ReplayWriter input.txt output.bin converts a text
+ * input file, as read by {@link PercolationVisualizer}, to the binary format.
+ * 
+ * @author Eric
+ *
+ */
+public class ReplayWriter implements Closeable {
+
+    static final int MAGIC = 0x50524c31;
+    static final int HEADER_BYTES = 16;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private final int n;
+    private long count;
+
+    /**
+     * Creates a replay of an n-by-n grid, replacing the file
+     * 
+     * @param n
+     * @param path
+     */
+    public ReplayWriter(int n, File path) throws IOException {
+
+        if (n <= 0) {
+            throw new IllegalArgumentException("N must be > 0");
+        }
+
+        this.n = n;
+        file = new RandomAccessFile(path, "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+
+        // The count is filled in on close
+        buffer.putInt(MAGIC).putInt(n).putLong(0);
+    }
+
+    /**
+     * Records the open of a site
+     * 
+     * @param row
+     * @param col
+     */
+    public void open(int row, int col) throws IOException {
+
+        if (row > n || col > n || row <= 0 || col <= 0) {
+            throw new IndexOutOfBoundsException("Row or Col out of bounds");
+        }
+
+        openSite((row - 1) * n + col);
+    }
+
+    /**
+     * Records the open of a site by its 1D index, without bounds checks
+     * 
+     * @param site
+     */
+    void openSite(int site) throws IOException {
+
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.putInt(site);
+        count++;
+    }
+
+    /**
+     * Writes the number of opens into the header and closes the file
+     */
+    @Override
+    public void close() throws IOException {
+
+        try {
+            flush();
+            ByteBuffer countBytes = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            countBytes.putLong(count).flip();
+            channel.write(countBytes, 8);
+        } finally {
+            file.close();
+        }
+    }
+
+    private void flush() throws IOException {
+
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        In in = new In(args[0]);
+        int n = in.readInt();
+        ReplayWriter writer = new ReplayWriter(n, new File(args[1]));
+        try {
+            while (!in.isEmpty()) {
+                int i = in.readInt();
+                int j = in.readInt();
+                writer.open(i, j);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
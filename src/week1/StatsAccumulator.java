@@ -0,0 +1,181 @@
+package week1;
+
+/**
+ * Streaming sample statistics in constant memory. Mean and variance are kept
+ * with Welford's method, and two accumulators can be merged, so separate
+ * threads can each fill one and combine them at the end.
+ * 
+ * Quantiles are optional. They come from a fixed-width histogram over a range
+ * given up front, so they are only accurate to about one bin width.
+ * 
+ * @author Eric
+ *
+ */
+public class StatsAccumulator {
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    private final long[] histogram;
+    private final double low;
+    private final double high;
+
+    /**
+     * Creates an accumulator without quantiles
+     */
+    public StatsAccumulator() {
+
+        histogram = null;
+        low = 0;
+        high = 0;
+    }
+
+    /**
+     * Creates an accumulator that also sketches quantiles of values in
+     * [low, high]. Values outside the range are counted in the end bins.
+     * 
+     * @param bins
+     * @param low
+     * @param high
+     */
+    public StatsAccumulator(int bins, double low, double high) {
+
+        if (bins <= 0) {
+            throw new IllegalArgumentException("bins must be greater than 0");
+        }
+        if (!(low < high)) {
+            throw new IllegalArgumentException("low must be less than high");
+        }
+
+        histogram = new long[bins];
+        this.low = low;
+        this.high = high;
+    }
+
+    /**
+     * Adds a value
+     * 
+     * @param x
+     */
+    public void add(double x) {
+
+        count++;
+        double delta = x - mean;
+        mean += delta / count;
+        m2 += delta * (x - mean);
+        min = Math.min(min, x);
+        max = Math.max(max, x);
+
+        if (histogram != null) {
+            histogram[bin(x)]++;
+        }
+    }
+
+    /**
+     * Adds every value of another accumulator to this one. The two must have
+     * the same quantile settings.
+     * 
+     * @param other
+     */
+    public void merge(StatsAccumulator other) {
+
+        if ((histogram == null) != (other.histogram == null)
+                || histogram != null && (histogram.length != other.histogram.length || low != other.low
+                        || high != other.high)) {
+            throw new IllegalArgumentException("Accumulators have different quantile settings");
+        }
+        if (other.count == 0) {
+            return;
+        }
+
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+
+        if (histogram != null) {
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += other.histogram[i];
+            }
+        }
+    }
+
+    /**
+     * Number of values added
+     */
+    public long count() {
+
+        return count;
+    }
+
+    /**
+     * Sample mean
+     */
+    public double mean() {
+
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Sample variance
+     */
+    public double var() {
+
+        return m2 / (count - 1);
+    }
+
+    /**
+     * Sample standard deviation
+     */
+    public double stddev() {
+
+        return Math.sqrt(var());
+    }
+
+    /**
+     * Approximate quantile
+     * 
+     * @param p
+     *            between 0 and 1
+     * 
+     * @return value below which a fraction p of the values fall
+     */
+    public double quantile(double p) {
+
+        if (histogram == null) {
+            throw new UnsupportedOperationException("Quantiles were not enabled");
+        }
+        if (p < 0 || p > 1) {
+            throw new IllegalArgumentException("p must be between 0 and 1");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        // Walk the histogram to the bin holding the target rank, then
+        // interpolate linearly inside that bin
+        double rank = p * count;
+        double width = (high - low) / histogram.length;
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] > 0 && seen + histogram[i] >= rank) {
+                double x = low + width * (i + (rank - seen) / histogram[i]);
+                return Math.max(min, Math.min(max, x));
+            }
+            seen += histogram[i];
+        }
+        return max;
+    }
+
+    private int bin(double x) {
+
+        int bin = (int) ((x - low) / (high - low) * histogram.length);
+        return Math.max(0, Math.min(histogram.length - 1, bin));
+    }
+}
@@ -0,0 +1,28 @@
+package week1;
+
+/**
+ * How a percolation trial picks the next site to open.
+ * 
+ * @author Eric
+ *
+ */
+public enum TrialMode {
+
+    /**
+     * Draws random (row, col) pairs until a blocked site is found
+     */
+    REJECTION,
+
+    /**
+     * Opens sites in the order of a random permutation of the site indices.
+     * The permutation is built lazily with an incremental Fisher-Yates shuffle,
+     * so only the sites actually opened cost a random draw.
+     */
+    SHUFFLED,
+
+    /**
+     * Draws a full random opening order up front, then binary searches the
+     * number of open sites with a flood fill instead of a union-find
+     */
+    FLOOD_FILL
+}
@@ -0,0 +1,78 @@
+package week1;
+
+/**
+ * Small SplitMix64 generator used by the trial workers. Each worker owns one
+ * instance and reseeds it at the start of every trial, so a trial's random
+ * stream depends only on the master seed and the trial index, never on which
+ * thread happened to run it.
+ *
+ * @author Eric
+ *
+ */
+final class TrialRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    /**
+     * Derives the seed of a single trial from the campaign's master seed
+     *
+     * @param masterSeed
+     * @param trial
+     *
+     * @return seed of the trial
+     */
+    static long trialSeed(long masterSeed, long trial) {
+
+        return mix64(masterSeed + (trial + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Restarts the stream from the given seed
+     *
+     * @param seed
+     */
+    void reseed(long seed) {
+
+        state = seed;
+    }
+
+    /**
+     * Returns the next 64 random bits
+     */
+    long nextLong() {
+
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+    /**
+     * Returns a uniformly distributed int in [0, bound)
+     *
+     * @param bound
+     */
+    int nextInt(int bound) {
+
+        int m = bound - 1;
+        int u = (int) (nextLong() >>> 33);
+        if ((bound & m) == 0) {
+            return (int) ((bound * (long) u) >> 31);
+        }
+
+        // Reject the values past the last full multiple of bound to stay unbiased
+        int r = u % bound;
+        while (u - r + m < 0) {
+            u = (int) (nextLong() >>> 33);
+            r = u % bound;
+        }
+        return r;
+    }
+
+    private static long mix64(long z) {
+
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,403 @@
+package week2;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe queue that removes random items. The items are split across
+ * stripes, each with its own lock, array and random generator, so threads
+ * working on different stripes never wait for each other.
+ * 
+ * A thread adds to its home stripe, moving on to the next one if that is busy.
+ * To remove an item it picks a stripe with probability proportional to the
+ * stripe's size, then a random item within it, which is uniform over the whole
+ * queue except for sizes changing under it. When the thread's home stripe has
+ * run dry it takes half of the items of the stripe it removed from, so threads
+ * that only remove spread back out over the stripes.
+ * 
+ * @author Eric
+ *
+ * @param <Item>
+ */
+public class ConcurrentRandomizedQueue<Item> implements Iterable<Item> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // A stripe must hold at least this many items to give half to another
+    private static final int MIN_REBALANCE = 32;
+
+    private final Stripe<Item>[] stripes;
+    private final int mask;
+
+    /**
+     * Constructs an empty queue with a stripe per available processor
+     */
+    public ConcurrentRandomizedQueue() {
+
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs an empty queue
+     * 
+     * @param stripes
+     *            lower bound on the number of stripes, rounded up to a power of
+     *            two
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentRandomizedQueue(int stripes) {
+
+        if (stripes <= 0 || stripes > 1 << 16) {
+            throw new IllegalArgumentException("stripes must be > 0 and <= 65536");
+        }
+
+        int count = Integer.highestOneBit(stripes);
+        if (count < stripes) {
+            count *= 2;
+        }
+
+        SplittableRandom seeds = new SplittableRandom();
+        this.stripes = (Stripe<Item>[]) new Stripe<?>[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe<Item>(seeds.split());
+        }
+        mask = count - 1;
+    }
+
+    /**
+     * Determines if the queue is empty. With other threads at work the answer
+     * may be stale by the time it returns.
+     */
+    public boolean isEmpty() {
+
+        return size() == 0;
+    }
+
+    /**
+     * Returns the size of the queue. With other threads at work the answer may
+     * be stale by the time it returns.
+     */
+    public int size() {
+
+        int size = 0;
+        for (Stripe<Item> stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    /**
+     * Adds an item to the queue.
+     * 
+     * @param item
+     */
+    public void enqueue(Item item) {
+
+        if (item == null) {
+            throw new NullPointerException();
+        }
+
+        int home = home();
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe<Item> stripe = stripes[(home + i) & mask];
+            if (stripe.lock.tryLock()) {
+                try {
+                    stripe.add(item);
+                } finally {
+                    stripe.lock.unlock();
+                }
+                return;
+            }
+        }
+
+        // Every stripe is busy: wait for the home one
+        Stripe<Item> stripe = stripes[home];
+        stripe.lock.lock();
+        try {
+            stripe.add(item);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns a random item from the queue.
+     */
+    public Item dequeue() {
+
+        Item item = poll();
+        if (item == null) {
+            throw new NoSuchElementException();
+        }
+        return item;
+    }
+
+    /**
+     * Removes and returns a random item from the queue, or null if it is empty.
+     */
+    public Item poll() {
+
+        Stripe<Item> stripe;
+        while ((stripe = pickStripe()) != null) {
+            stripe.lock.lock();
+            try {
+                if (stripe.size == 0) {
+                    // Emptied since it was picked
+                    continue;
+                }
+                Item item = stripe.remove();
+                rebalance(stripe);
+                return item;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns but does not remove a random item from the queue.
+     */
+    public Item sample() {
+
+        Stripe<Item> stripe;
+        while ((stripe = pickStripe()) != null) {
+            stripe.lock.lock();
+            try {
+                if (stripe.size == 0) {
+                    continue;
+                }
+                return stripe.items[stripe.random.nextInt(stripe.size)];
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the items, in random order, that
+     * never throws ConcurrentModificationException. The items are copied one
+     * stripe at a time, so the iterator sees each stripe as it was at some
+     * moment during the call but not necessarily the whole queue, and is not
+     * affected by later changes.
+     */
+    @Override
+    public Iterator<Item> iterator() {
+
+        Object[] snapshot = new Object[Math.max(size(), MIN_CAPACITY)];
+        int count = 0;
+        for (Stripe<Item> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                if (count + stripe.size > snapshot.length) {
+                    Object[] grown = new Object[Math.max(2 * snapshot.length, count + stripe.size)];
+                    System.arraycopy(snapshot, 0, grown, 0, count);
+                    snapshot = grown;
+                }
+                System.arraycopy(stripe.items, 0, snapshot, count, stripe.size);
+                count += stripe.size;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        final Object[] items = snapshot;
+        final LazyPermutation order = new LazyPermutation(count,
+                new SplittableRandom(ThreadLocalRandom.current().nextLong()));
+
+        Iterator<Item> iter = new Iterator<Item>() {
+
+            @Override
+            public boolean hasNext() {
+
+                return order.hasNext();
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public Item next() {
+
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (Item) items[order.next()];
+            }
+
+            @Override
+            public void remove() {
+
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        return iter;
+    }
+
+    /**
+     * Picks a stripe with probability proportional to its size, from sizes
+     * read without locking
+     * 
+     * @return the stripe, or null if the queue is empty
+     */
+    private Stripe<Item> pickStripe() {
+
+        while (true) {
+            int total = size();
+            if (total <= 0) {
+                if (isEmptyLocked()) {
+                    return null;
+                }
+                continue;
+            }
+
+            int target = ThreadLocalRandom.current().nextInt(total);
+            Stripe<Item> last = null;
+            for (Stripe<Item> stripe : stripes) {
+                int size = stripe.size;
+                if (size > 0) {
+                    if (target < size) {
+                        return stripe;
+                    }
+                    target -= size;
+                    last = stripe;
+                }
+            }
+
+            // Sizes shrank while they were being read
+            if (last != null) {
+                return last;
+            }
+
+            // Rebalancing moved every item into stripes this scan had already
+            // passed, so look again
+        }
+    }
+
+    /**
+     * Determines if the queue is empty, holding every stripe's lock at once so
+     * no item can move past the check. Locks are taken in index order, and no
+     * other thread waits for a lock while holding one, so this cannot deadlock.
+     */
+    private boolean isEmptyLocked() {
+
+        int locked = 0;
+        try {
+            boolean empty = true;
+            for (Stripe<Item> stripe : stripes) {
+                stripe.lock.lock();
+                locked++;
+                empty &= stripe.size == 0;
+            }
+            return empty;
+        } finally {
+            for (int i = 0; i < locked; i++) {
+                stripes[i].lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Gives half of a locked stripe's items to the current thread's home
+     * stripe if that has run dry. Skipped if the home stripe is busy, since
+     * another thread is using it then.
+     * 
+     * @param from
+     */
+    private void rebalance(Stripe<Item> from) {
+
+        Stripe<Item> home = stripes[home()];
+        if (home == from || home.size > 0 || from.size < MIN_REBALANCE || !home.lock.tryLock()) {
+            return;
+        }
+        try {
+            if (home.size == 0) {
+                int moved = from.size / 2;
+                for (int i = 0; i < moved; i++) {
+                    home.add(from.removeLast());
+                }
+            }
+        } finally {
+            home.lock.unlock();
+        }
+    }
+
+    /**
+     * Index of the current thread's home stripe
+     */
+    private int home() {
+
+        long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    /**
+     * One stripe: an array of items with its own lock and random generator.
+     * Removing an item moves the last one into its slot, and the array
+     * doubles when full and halves at a quarter full.
+     * 
+     * @author Eric
+     *
+     * @param <Item>
+     */
+    private static final class Stripe<Item> {
+
+        final ReentrantLock lock = new ReentrantLock();
+        final SplittableRandom random;
+
+        @SuppressWarnings("unchecked")
+        Item[] items = (Item[]) new Object[MIN_CAPACITY];
+
+        // Only written under the lock; read without it to pick stripes
+        volatile int size = 0;
+
+        Stripe(SplittableRandom random) {
+
+            this.random = random;
+        }
+
+        void add(Item item) {
+
+            if (size >= items.length) {
+                resize(items.length * 2);
+            }
+            items[size] = item;
+            size = size + 1;
+        }
+
+        Item remove() {
+
+            int index = random.nextInt(size);
+            Item item = items[index];
+            items[index] = items[size - 1];
+            return removeLastSlot(item);
+        }
+
+        Item removeLast() {
+
+            return removeLastSlot(items[size - 1]);
+        }
+
+        private Item removeLastSlot(Item item) {
+
+            int last = size - 1;
+            items[last] = null;
+            size = last;
+            if (items.length > MIN_CAPACITY && last <= items.length / 4) {
+                resize(items.length / 2);
+            }
+            return item;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void resize(int capacity) {
+
+            Item[] resized = (Item[]) new Object[capacity];
+            System.arraycopy(items, 0, resized, 0, size);
+            items = resized;
+        }
+    }
+}
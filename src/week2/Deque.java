@@ -1,11 +1,14 @@
 package week2;
 
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 /**
  * Deque class that allows Stack operations. Can insert and remove from bottom
- * and top. Uses a Linked List for it's implementation.
+ * and top. Uses a circular array whose length is a power of two, so positions
+ * wrap with a mask instead of a division, and adding or removing an item does
+ * not allocate except when the array grows or shrinks.
  * 
  * @author Eric
  *
@@ -13,43 +16,23 @@ import java.util.NoSuchElementException;
  */
 public class Deque<Item> implements Iterable<Item> {
 
-    /**
-     * Represents a Node in the Stack
-     * 
-     * @author Eric
-     *
-     */
-    private class Node {
-        
-        Item value;
-        Node previous, next;
-
-        public Node(Item value, Node previous, Node next) {
-            
-            this.value = value;
-            this.previous = previous;
-            this.next = next;
-        }
+    private static final int MIN_CAPACITY = 16;
 
-        public Node() {
+    @SuppressWarnings("unchecked")
+    private Item[] items = (Item[]) new Object[MIN_CAPACITY];
+    private int mask = MIN_CAPACITY - 1;
 
-        }
-    }
-
-    private Node head = null;
-    private Node tail = null;
+    // Index of the first item
+    private int head = 0;
     private int size = 0;
 
+    // Changes on every add and remove so iterators can detect them
+    private int modCount = 0;
+
     /**
      * Constructs an empty deque
      */
     public Deque() {
-        
-        head = new Node();
-        tail = new Node();
-
-        head.next = tail;
-        tail.previous = head;
 
     }
 
@@ -80,12 +63,15 @@ public class Deque<Item> implements Iterable<Item> {
             throw new NullPointerException();
         }
 
-        Node newNode = new Node(item, head, head.next);
-        head.next.previous = newNode;
-        head.next = newNode;
+        if (size == items.length) {
+            resize(items.length * 2);
+        }
 
-        size++;
+        head = (head - 1) & mask;
+        items[head] = item;
 
+        size++;
+        modCount++;
     }
 
     /**
@@ -99,12 +85,14 @@ public class Deque<Item> implements Iterable<Item> {
             throw new NullPointerException();
         }
 
-        Node newNode = new Node(item, tail.previous, tail);
-        tail.previous.next = newNode;
-        tail.previous = newNode;
+        if (size == items.length) {
+            resize(items.length * 2);
+        }
+
+        items[(head + size) & mask] = item;
 
         size++;
-
+        modCount++;
     }
 
     /**
@@ -116,13 +104,15 @@ public class Deque<Item> implements Iterable<Item> {
             throw new NoSuchElementException();
         }
 
-        Node oldNode = head.next;
-        oldNode.next.previous = head;
-        head.next = oldNode.next;
+        Item item = items[head];
+        items[head] = null;
+        head = (head + 1) & mask;
 
         size--;
+        modCount++;
+        shrinkIfSparse();
 
-        return oldNode.value;
+        return item;
     }
 
     /**
@@ -134,41 +124,47 @@ public class Deque<Item> implements Iterable<Item> {
             throw new NoSuchElementException();
         }
 
-        Node oldNode = tail.previous;
-        oldNode.previous.next = tail;
-        tail.previous = oldNode.previous;
+        int last = (head + size - 1) & mask;
+        Item item = items[last];
+        items[last] = null;
 
         size--;
+        modCount++;
+        shrinkIfSparse();
 
-        return oldNode.value;
+        return item;
     }
 
     /**
-     * Returns an iterator that iterates over the items from front to end.
+     * Returns an iterator that iterates over the items from front to end. The
+     * iterator fails with a ConcurrentModificationException once the deque is
+     * changed other than through it.
      */
     @Override
     public Iterator<Item> iterator() {
 
         Iterator<Item> iter = new Iterator<Item>() {
 
-            private Node currentNode = head;
+            private final int expectedModCount = modCount;
+            private int index = 0;
 
             @Override
             public boolean hasNext() {
 
-                return currentNode.next != null && currentNode.next != tail;
+                return index < size;
             }
 
             @Override
             public Item next() {
 
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
                 if (!hasNext()) {
                     throw new NoSuchElementException();
                 }
 
-                currentNode = currentNode.next;
-
-                return currentNode.value;
+                return items[(head + index++) & mask];
             }
 
             @Override
@@ -181,4 +177,39 @@ public class Deque<Item> implements Iterable<Item> {
 
         return iter;
     }
+
+    /**
+     * Halves the array once it is a quarter full, so it stays proportional to
+     * the size without resizing back and forth at the boundary
+     */
+    private void shrinkIfSparse() {
+
+        if (items.length > MIN_CAPACITY && size <= items.length / 4) {
+            resize(items.length / 2);
+        }
+    }
+
+    /**
+     * Copies the items to the front of a new array
+     * 
+     * @param capacity
+     *            power of two of at least size
+     */
+    @SuppressWarnings("unchecked")
+    private void resize(int capacity) {
+
+        if (capacity < 0) {
+            throw new IllegalStateException("Deque is too large");
+        }
+
+        Item[] resized = (Item[]) new Object[capacity];
+
+        int firstPart = Math.min(size, items.length - head);
+        System.arraycopy(items, head, resized, 0, firstPart);
+        System.arraycopy(items, 0, resized, firstPart, size - firstPart);
+
+        items = resized;
+        mask = capacity - 1;
+        head = 0;
+    }
 }
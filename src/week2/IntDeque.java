@@ -0,0 +1,192 @@
+package week2;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * {@link Deque} of ints. The values sit directly in a circular int array, so a
+ * value takes 4 bytes and adding or removing one never boxes it.
+ * 
+ * @author Eric
+ *
+ */
+public class IntDeque implements Iterable<Integer> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] items = new int[MIN_CAPACITY];
+    private int mask = MIN_CAPACITY - 1;
+
+    // Index of the first value
+    private int head = 0;
+    private int size = 0;
+
+    // Changes on every add and remove so iterators can detect them
+    private int modCount = 0;
+
+    /**
+     * Determines if the deque is empty
+     */
+    public boolean isEmpty() {
+
+        return size == 0;
+    }
+
+    /**
+     * Returns the size of the Deque
+     */
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * Adds a value to the Deque
+     * 
+     * @param value
+     */
+    public void addFirst(int value) {
+
+        if (size == items.length) {
+            resize(items.length * 2);
+        }
+
+        head = (head - 1) & mask;
+        items[head] = value;
+
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Adds a value to the end of the Deque.
+     * 
+     * @param value
+     */
+    public void addLast(int value) {
+
+        if (size == items.length) {
+            resize(items.length * 2);
+        }
+
+        items[(head + size) & mask] = value;
+
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Removes and returns the first value from the Deque.
+     */
+    public int removeFirst() {
+
+        if (size <= 0) {
+            throw new NoSuchElementException();
+        }
+
+        int value = items[head];
+        head = (head + 1) & mask;
+
+        size--;
+        modCount++;
+        shrinkIfSparse();
+
+        return value;
+    }
+
+    /**
+     * Removes and returns the last value from the Deque.
+     */
+    public int removeLast() {
+
+        if (size <= 0) {
+            throw new NoSuchElementException();
+        }
+
+        int value = items[(head + size - 1) & mask];
+
+        size--;
+        modCount++;
+        shrinkIfSparse();
+
+        return value;
+    }
+
+    /**
+     * Returns an iterator that iterates over the values from front to end.
+     * Calling nextInt instead of next avoids boxing. The iterator fails with a
+     * ConcurrentModificationException once the deque is changed other than
+     * through it.
+     */
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+
+        PrimitiveIterator.OfInt iter = new PrimitiveIterator.OfInt() {
+
+            private final int expectedModCount = modCount;
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+
+                return index < size;
+            }
+
+            @Override
+            public int nextInt() {
+
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return items[(head + index++) & mask];
+            }
+
+            @Override
+            public void remove() {
+
+                throw new UnsupportedOperationException();
+            }
+
+        };
+
+        return iter;
+    }
+
+    /**
+     * Halves the array once it is a quarter full
+     */
+    private void shrinkIfSparse() {
+
+        if (items.length > MIN_CAPACITY && size <= items.length / 4) {
+            resize(items.length / 2);
+        }
+    }
+
+    /**
+     * Copies the values to the front of a new array
+     * 
+     * @param capacity
+     *            power of two of at least size
+     */
+    private void resize(int capacity) {
+
+        if (capacity < 0) {
+            throw new IllegalStateException("Deque is too large");
+        }
+
+        int[] resized = new int[capacity];
+
+        int firstPart = Math.min(size, items.length - head);
+        System.arraycopy(items, head, resized, 0, firstPart);
+        System.arraycopy(items, 0, resized, firstPart, size - firstPart);
+
+        items = resized;
+        mask = capacity - 1;
+        head = 0;
+    }
+}
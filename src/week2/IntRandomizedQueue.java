@@ -0,0 +1,183 @@
+package week2;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * {@link RandomizedQueue} of ints. The values sit directly in an int array, so
+ * a value takes 4 bytes and enqueueing or dequeueing one never boxes it.
+ * 
+ * @author Eric
+ *
+ */
+public class IntRandomizedQueue implements Iterable<Integer> {
+
+    private int size = 0;
+
+    private int[] itemArray = new int[16];
+
+    private final RandomGenerator random;
+
+    // Changes on every enqueue and dequeue so iterators can detect them
+    private int modCount = 0;
+
+    /**
+     * Constructs an empty queue that draws from its own SplittableRandom, so
+     * queues used by different threads never contend for a generator
+     */
+    public IntRandomizedQueue() {
+
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Constructs an empty queue whose random choices are reproducible from a
+     * seed
+     * 
+     * @param seed
+     */
+    public IntRandomizedQueue(long seed) {
+
+        this(new SplittableRandom(seed));
+    }
+
+    /**
+     * Constructs an empty queue that draws every random choice from the given
+     * generator. The queue does not synchronize on it, so a generator shared
+     * between queues on different threads must be thread-safe.
+     * 
+     * @param random
+     */
+    public IntRandomizedQueue(RandomGenerator random) {
+
+        if (random == null) {
+            throw new NullPointerException();
+        }
+        this.random = random;
+    }
+
+    /**
+     * Determines if the queue is empty.
+     */
+    public boolean isEmpty() {
+
+        return size == 0;
+    }
+
+    /**
+     * Returns the size of the queue.
+     */
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * Adds a value to the queue.
+     * 
+     * @param value
+     */
+    public void enqueue(int value) {
+
+        if (size >= itemArray.length) {
+            resizeArray(itemArray.length * 2);
+        }
+
+        itemArray[size++] = value;
+        modCount++;
+    }
+
+    /**
+     * Removes and returns a random value from the queue.
+     */
+    public int dequeue() {
+
+        if (size <= 0) {
+            throw new NoSuchElementException();
+        }
+
+        int randInt = random.nextInt(size);
+        int value = itemArray[randInt];
+
+        // Moves the last value into the hole
+        itemArray[randInt] = itemArray[--size];
+        modCount++;
+
+        if (size > 0 && size <= itemArray.length / 4) {
+            resizeArray(itemArray.length / 2);
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns but does not remove a random value from the queue.
+     */
+    public int sample() {
+
+        if (size <= 0) {
+            throw new NoSuchElementException();
+        }
+
+        return itemArray[random.nextInt(size)];
+    }
+
+    /**
+     * Returns a fail-fast iterator over the values in the queue in random
+     * order: it reads the queue's own array and throws a
+     * ConcurrentModificationException once the queue is changed. Calling
+     * nextInt instead of next avoids boxing. The order is shuffled as the
+     * iterator goes, so taking only the first k values costs O(k) time and
+     * memory.
+     */
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+
+        PrimitiveIterator.OfInt iter = new PrimitiveIterator.OfInt() {
+
+            private final int expectedModCount = modCount;
+            private final LazyPermutation order = new LazyPermutation(size, random);
+
+            @Override
+            public boolean hasNext() {
+
+                return order.hasNext();
+            }
+
+            @Override
+            public int nextInt() {
+
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return itemArray[order.next()];
+            }
+
+            @Override
+            public void remove() {
+
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        return iter;
+    }
+
+    /**
+     * Resizes the array.
+     * 
+     * @param newSize
+     */
+    private void resizeArray(int newSize) {
+
+        int[] resizedItemArray = new int[newSize];
+        System.arraycopy(itemArray, 0, resizedItemArray, 0, size);
+        itemArray = resizedItemArray;
+    }
+}
@@ -0,0 +1,161 @@
+package week2;
+
+import java.util.NoSuchElementException;
+import java.util.random.RandomGenerator;
+
+/**
+ * Uniformly random order of the indices 0 to n - 1, produced one index at a
+ * time by a Fisher-Yates shuffle run on demand. The shuffle works on a virtual
+ * array that starts out as the identity; only the positions that no longer
+ * hold their own index are stored, in a small hash table, so taking the first
+ * k indices costs O(k) time and memory. Hash lookups are several times slower
+ * than reading an array, so once the table reaches a thirty-second of the
+ * array's length it is replaced by the array, which is still O(k).
+ * 
+ * @author Eric
+ *
+ */
+final class LazyPermutation {
+
+    private static final int MIN_TABLE = 16;
+
+    private final int n;
+    private final RandomGenerator random;
+
+    // Number of indices handed out, which is also the next position to fill
+    private int next = 0;
+
+    // Open addressing table from a position to the index it holds. Keys are
+    // stored plus one, so 0 marks an empty slot.
+    private int[] keys = new int[MIN_TABLE];
+    private int[] values = new int[MIN_TABLE];
+    private int entries = 0;
+
+    // The whole virtual array, once the table grows too large
+    private int[] dense;
+
+    /**
+     * @param n
+     *            number of indices to shuffle
+     * @param random
+     */
+    LazyPermutation(int n, RandomGenerator random) {
+
+        this.n = n;
+        this.random = random;
+    }
+
+    /**
+     * Determines if some indices have not been handed out yet
+     */
+    boolean hasNext() {
+
+        return next < n;
+    }
+
+    /**
+     * Returns the next index of the permutation
+     */
+    int next() {
+
+        if (next >= n) {
+            throw new NoSuchElementException();
+        }
+
+        int swap = next + random.nextInt(n - next);
+        int index = get(swap);
+
+        // Position next is never read again, so only the swapped position
+        // needs to take over its index
+        if (swap != next) {
+            put(swap, get(next));
+        }
+        next++;
+
+        return index;
+    }
+
+    private int get(int position) {
+
+        if (dense != null) {
+            return dense[position];
+        }
+
+        int mask = keys.length - 1;
+        for (int slot = hash(position) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == position + 1) {
+                return values[slot];
+            }
+        }
+        return position;
+    }
+
+    private void put(int position, int index) {
+
+        if (dense != null) {
+            dense[position] = index;
+            return;
+        }
+
+        int mask = keys.length - 1;
+        int slot = hash(position) & mask;
+        while (keys[slot] != 0 && keys[slot] != position + 1) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == 0) {
+            keys[slot] = position + 1;
+            entries++;
+        }
+        values[slot] = index;
+
+        if (entries * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Doubles the table, or switches to the dense array once the table is big
+     * enough that the array costs only a constant factor more
+     */
+    private void grow() {
+
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        int capacity = oldKeys.length * 2;
+
+        if (capacity >= n / 32) {
+            dense = new int[n];
+            for (int i = next; i < n; i++) {
+                dense[i] = i;
+            }
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != 0) {
+                    dense[oldKeys[slot] - 1] = oldValues[slot];
+                }
+            }
+            keys = null;
+            values = null;
+            return;
+        }
+
+        keys = new int[capacity];
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != 0) {
+                int newSlot = hash(oldKeys[slot] - 1) & mask;
+                while (keys[newSlot] != 0) {
+                    newSlot = (newSlot + 1) & mask;
+                }
+                keys[newSlot] = oldKeys[slot];
+                values[newSlot] = oldValues[slot];
+            }
+        }
+    }
+
+    private static int hash(int position) {
+
+        int h = position * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,183 @@
+package week2;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * {@link RandomizedQueue} of longs. The values sit directly in a long array,
+ * so a value takes 8 bytes and enqueueing or dequeueing one never boxes it.
+ * 
+ * @author Eric
+ *
+ */
+public class LongRandomizedQueue implements Iterable<Long> {
+
+    private int size = 0;
+
+    private long[] itemArray = new long[16];
+
+    private final RandomGenerator random;
+
+    // Changes on every enqueue and dequeue so iterators can detect them
+    private int modCount = 0;
+
+    /**
+     * Constructs an empty queue that draws from its own SplittableRandom, so
+     * queues used by different threads never contend for a generator
+     */
+    public LongRandomizedQueue() {
+
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Constructs an empty queue whose random choices are reproducible from a
+     * seed
+     * 
+     * @param seed
+     */
+    public LongRandomizedQueue(long seed) {
+
+        this(new SplittableRandom(seed));
+    }
+
+    /**
+     * Constructs an empty queue that draws every random choice from the given
+     * generator. The queue does not synchronize on it, so a generator shared
+     * between queues on different threads must be thread-safe.
+     * 
+     * @param random
+     */
+    public LongRandomizedQueue(RandomGenerator random) {
+
+        if (random == null) {
+            throw new NullPointerException();
+        }
+        this.random = random;
+    }
+
+    /**
+     * Determines if the queue is empty.
+     */
+    public boolean isEmpty() {
+
+        return size == 0;
+    }
+
+    /**
+     * Returns the size of the queue.
+     */
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * Adds a value to the queue.
+     * 
+     * @param value
+     */
+    public void enqueue(long value) {
+
+        if (size >= itemArray.length) {
+            resizeArray(itemArray.length * 2);
+        }
+
+        itemArray[size++] = value;
+        modCount++;
+    }
+
+    /**
+     * Removes and returns a random value from the queue.
+     */
+    public long dequeue() {
+
+        if (size <= 0) {
+            throw new NoSuchElementException();
+        }
+
+        int randInt = random.nextInt(size);
+        long value = itemArray[randInt];
+
+        // Moves the last value into the hole
+        itemArray[randInt] = itemArray[--size];
+        modCount++;
+
+        if (size > 0 && size <= itemArray.length / 4) {
+            resizeArray(itemArray.length / 2);
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns but does not remove a random value from the queue.
+     */
+    public long sample() {
+
+        if (size <= 0) {
+            throw new NoSuchElementException();
+        }
+
+        return itemArray[random.nextInt(size)];
+    }
+
+    /**
+     * Returns a fail-fast iterator over the values in the queue in random
+     * order: it reads the queue's own array and throws a
+     * ConcurrentModificationException once the queue is changed. Calling
+     * nextLong instead of next avoids boxing. The order is shuffled as the
+     * iterator goes, so taking only the first k values costs O(k) time and
+     * memory.
+     */
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+
+        PrimitiveIterator.OfLong iter = new PrimitiveIterator.OfLong() {
+
+            private final int expectedModCount = modCount;
+            private final LazyPermutation order = new LazyPermutation(size, random);
+
+            @Override
+            public boolean hasNext() {
+
+                return order.hasNext();
+            }
+
+            @Override
+            public long nextLong() {
+
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return itemArray[order.next()];
+            }
+
+            @Override
+            public void remove() {
+
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        return iter;
+    }
+
+    /**
+     * Resizes the array.
+     * 
+     * @param newSize
+     */
+    private void resizeArray(int newSize) {
+
+        long[] resizedItemArray = new long[newSize];
+        System.arraycopy(itemArray, 0, resizedItemArray, 0, size);
+        itemArray = resizedItemArray;
+    }
+}
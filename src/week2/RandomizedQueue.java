@@ -1,9 +1,10 @@
 package week2;
 
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-
-import edu.princeton.cs.algs4.StdRandom;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Queue that removes random items.
@@ -19,6 +20,46 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
     @SuppressWarnings("unchecked")
     private Item[] itemArray = (Item[]) new Object[16];
 
+    private final RandomGenerator random;
+
+    // Changes on every enqueue and dequeue so iterators can detect them
+    private int modCount = 0;
+
+    /**
+     * Constructs an empty queue that draws from its own SplittableRandom, so
+     * queues used by different threads never contend for a generator
+     */
+    public RandomizedQueue() {
+
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Constructs an empty queue whose random choices are reproducible from a
+     * seed
+     * 
+     * @param seed
+     */
+    public RandomizedQueue(long seed) {
+
+        this(new SplittableRandom(seed));
+    }
+
+    /**
+     * Constructs an empty queue that draws every random choice from the given
+     * generator. The queue does not synchronize on it, so a generator shared
+     * between queues on different threads must be thread-safe.
+     * 
+     * @param random
+     */
+    public RandomizedQueue(RandomGenerator random) {
+
+        if (random == null) {
+            throw new NullPointerException();
+        }
+        this.random = random;
+    }
+
     /**
      * Determines if the queue is empty.
      */
@@ -51,6 +92,37 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         }
 
         itemArray[size++] = item;
+        modCount++;
+    }
+
+    /**
+     * Adds every item of an array to the queue, growing the backing array at
+     * most once. Nothing is added if any item is null.
+     * 
+     * @param items
+     */
+    public void enqueueAll(Item[] items) {
+
+        for (Item item : items) {
+            if (item == null) {
+                throw new NullPointerException();
+            }
+        }
+
+        int capacity = itemArray.length;
+        while (capacity < size + items.length) {
+            capacity *= 2;
+            if (capacity <= 0) {
+                throw new IllegalStateException("Queue is too large");
+            }
+        }
+        if (capacity != itemArray.length) {
+            resizeArray(capacity);
+        }
+
+        System.arraycopy(items, 0, itemArray, size, items.length);
+        size += items.length;
+        modCount++;
     }
 
     /**
@@ -64,12 +136,13 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
             throw new NoSuchElementException();
         }
 
-        int randInt = StdRandom.uniform(size);
+        int randInt = random.nextInt(size);
         Item item = itemArray[randInt];
 
         swapRemovedItemWithEnd(randInt);
 
         size--;
+        modCount++;
 
         if (size > 0 && size <= itemArray.length / 4) {
             resizeArray(itemArray.length / 2);
@@ -87,44 +160,117 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
             throw new NoSuchElementException();
         }
 
-        int randInt = StdRandom.uniform(size);
+        int randInt = random.nextInt(size);
         Item item = itemArray[randInt];
 
         return item;
     }
 
     /**
-     * Returns an independent iterator over the items in the queue in random
-     * order.
+     * Removes k random items from the queue into the start of out. Each item
+     * is drawn by a step of Fisher-Yates that swaps it to the end of the
+     * items, so the k removed items end up as the tail, which is then cleared
+     * and the array shrunk at most once.
+     * 
+     * @param k
+     * @param out
+     *            array of at least k slots
+     */
+    public void dequeue(int k, Item[] out) {
+
+        validateCount(k, out);
+        if (k > size) {
+            throw new NoSuchElementException();
+        }
+
+        for (int i = 0; i < k; i++) {
+            int last = size - 1 - i;
+            int randInt = random.nextInt(last + 1);
+            out[i] = itemArray[randInt];
+            itemArray[randInt] = itemArray[last];
+            itemArray[last] = null;
+        }
+
+        size -= k;
+        modCount++;
+
+        int capacity = itemArray.length;
+        while (size > 0 && size <= capacity / 4) {
+            capacity /= 2;
+        }
+        if (capacity != itemArray.length) {
+            resizeArray(capacity);
+        }
+    }
+
+    /**
+     * Returns but does not remove k random items from the queue, written to
+     * the start of out. Without replacement the k items are distinct ones,
+     * drawn by running only k steps of a shuffle, so the queue is left as it
+     * is.
+     * 
+     * @param k
+     * @param withReplacement
+     *            if the same item may be drawn more than once
+     * @param out
+     *            array of at least k slots
+     */
+    public void sample(int k, boolean withReplacement, Item[] out) {
+
+        validateCount(k, out);
+        if (k == 0) {
+            return;
+        }
+        if (size <= 0) {
+            throw new NoSuchElementException();
+        }
+
+        if (withReplacement) {
+            for (int i = 0; i < k; i++) {
+                out[i] = itemArray[random.nextInt(size)];
+            }
+            return;
+        }
+
+        if (k > size) {
+            throw new IllegalArgumentException("k must be <= size without replacement");
+        }
+        LazyPermutation order = new LazyPermutation(size, random);
+        for (int i = 0; i < k; i++) {
+            out[i] = itemArray[order.next()];
+        }
+    }
+
+    /**
+     * Returns a fail-fast iterator over the items in the queue in random
+     * order: it reads the queue's own array and throws a
+     * ConcurrentModificationException once the queue is changed. The order is
+     * shuffled as the iterator goes, so taking only the first k items costs
+     * O(k) time and memory.
      */
     public Iterator<Item> iterator() {
 
-        @SuppressWarnings("unchecked")
         Iterator<Item> iter = new Iterator<Item>() {
 
-            Item[] iterArray;
-            int index = 0;
-            {
-                iterArray = (Item[]) new Object[size];
-                for (int i = 0; i < size; i++) {
-                    iterArray[i] = itemArray[i];
-                }
-                StdRandom.shuffle(iterArray);
-            }
+            private final int expectedModCount = modCount;
+            private final LazyPermutation order = new LazyPermutation(size, random);
 
             @Override
             public boolean hasNext() {
 
-                return index < (iterArray.length);
+                return order.hasNext();
             }
 
             @Override
             public Item next() {
 
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
                 if (!hasNext()) {
                     throw new NoSuchElementException();
                 }
-                return iterArray[index++];
+                return itemArray[order.next()];
             }
 
             @Override
@@ -137,6 +283,16 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         return iter;
     }
 
+    private static void validateCount(int k, Object[] out) {
+
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be >= 0");
+        }
+        if (out.length < k) {
+            throw new IllegalArgumentException("out must hold at least k items");
+        }
+    }
+
     /**
      * Moves an item to the end of the array.
      * 
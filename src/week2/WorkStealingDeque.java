@@ -0,0 +1,186 @@
+package week2;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free deque for one producer and any number of consumers, after Chase
+ * and Lev's work-stealing deque. The thread that owns the deque adds and
+ * removes items at the end, like a stack; every other thread may take items
+ * from the front. Only a take racing for the very last item, or two takes
+ * racing for the same front item, needs a compare-and-set, so the owner
+ * usually runs without any atomic instruction.
+ * 
+ * addLast, removeLast and pollLast must only be called by the owner thread.
+ * removeFirst, pollFirst, size and isEmpty may be called by any thread.
+ * 
+ * The items live in a circular array whose length is a power of two. The owner
+ * doubles it when full; it never shrinks, since a thief may still be reading
+ * the old one.
+ * 
+ * @author Eric
+ *
+ * @param <Item>
+ */
+public class WorkStealingDeque<Item> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // Index of the first item; only ever increases, by compare-and-set
+    private final AtomicLong top = new AtomicLong();
+
+    // One past the index of the last item; only written by the owner
+    private volatile long bottom = 0;
+
+    private volatile AtomicReferenceArray<Item> items = new AtomicReferenceArray<Item>(MIN_CAPACITY);
+
+    /**
+     * Determines if the deque is empty. With other threads at work the answer
+     * may be stale by the time it returns.
+     */
+    public boolean isEmpty() {
+
+        return size() == 0;
+    }
+
+    /**
+     * Returns the size of the deque. With other threads at work the answer may
+     * be stale by the time it returns.
+     */
+    public int size() {
+
+        long size = bottom - top.get();
+        return size > 0 ? (int) size : 0;
+    }
+
+    /**
+     * Adds an item to the end of the deque. Owner thread only.
+     * 
+     * @param item
+     */
+    public void addLast(Item item) {
+
+        if (item == null) {
+            throw new NullPointerException();
+        }
+
+        long b = bottom;
+        long t = top.get();
+        AtomicReferenceArray<Item> a = items;
+        if (b - t >= a.length()) {
+            a = grow(a, t, b);
+        }
+        a.lazySet((int) b & (a.length() - 1), item);
+
+        // Publishes the item to the thieves
+        bottom = b + 1;
+    }
+
+    /**
+     * Removes and returns the last item from the deque. Owner thread only.
+     */
+    public Item removeLast() {
+
+        Item item = pollLast();
+        if (item == null) {
+            throw new NoSuchElementException();
+        }
+        return item;
+    }
+
+    /**
+     * Removes and returns the last item from the deque, or null if it is empty.
+     * Owner thread only.
+     */
+    public Item pollLast() {
+
+        long b = bottom - 1;
+        AtomicReferenceArray<Item> a = items;
+
+        // Claims the last item before looking at top, so a thief that reads
+        // bottom after this cannot take it too
+        bottom = b;
+        long t = top.get();
+
+        if (t > b) {
+            bottom = b + 1;
+            return null;
+        }
+
+        int slot = (int) b & (a.length() - 1);
+        Item item = a.get(slot);
+        if (t < b) {
+            a.lazySet(slot, null);
+            return item;
+        }
+
+        // The last item: race the thieves for it
+        if (!top.compareAndSet(t, t + 1)) {
+            item = null;
+        }
+        bottom = b + 1;
+        return item;
+    }
+
+    /**
+     * Removes and returns the first item from the deque. Any thread.
+     */
+    public Item removeFirst() {
+
+        Item item = pollFirst();
+        if (item == null) {
+            throw new NoSuchElementException();
+        }
+        return item;
+    }
+
+    /**
+     * Removes and returns the first item from the deque, or null if it is
+     * empty. Any thread; a lost race for an item only means trying the next
+     * one, so the call never waits for another thread.
+     */
+    public Item pollFirst() {
+
+        while (true) {
+            long t = top.get();
+            long b = bottom;
+            if (t >= b) {
+                return null;
+            }
+
+            AtomicReferenceArray<Item> a = items;
+            Item item = a.get((int) t & (a.length() - 1));
+
+            // The slot is left as it is: once top moves past it the owner may
+            // already be reusing it
+            if (top.compareAndSet(t, t + 1)) {
+                return item;
+            }
+        }
+    }
+
+    /**
+     * Copies the items into an array of twice the length and publishes it
+     * 
+     * @param a
+     * @param t
+     * @param b
+     * 
+     * @return the new array
+     */
+    private AtomicReferenceArray<Item> grow(AtomicReferenceArray<Item> a, long t, long b) {
+
+        int capacity = a.length() * 2;
+        if (capacity < 0) {
+            throw new IllegalStateException("Deque is too large");
+        }
+
+        AtomicReferenceArray<Item> grown = new AtomicReferenceArray<Item>(capacity);
+        for (long i = t; i < b; i++) {
+            grown.lazySet((int) i & (capacity - 1), a.get((int) i & (a.length() - 1)));
+        }
+        items = grown;
+        return grown;
+    }
+}